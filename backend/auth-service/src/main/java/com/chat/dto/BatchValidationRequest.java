@@ -0,0 +1,14 @@
+package com.chat.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchValidationRequest {
+    @NotEmpty(message = "Tokens are required")
+    @Size(max = 1000, message = "At most 1000 tokens can be validated per request")
+    private List<String> tokens;
+}
@@ -0,0 +1,6 @@
+package com.chat.security;
+
+import java.util.Date;
+
+public record TokenClaims(Long userId, String username, Date expiresAt) {
+}
@@ -4,10 +4,14 @@ import com.chat.dto.*;
 import com.chat.model.User;
 import com.chat.repository.UserRepository;
 import com.chat.security.JwtUtil;
+import com.chat.security.TokenClaims;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class AuthService {
@@ -65,14 +69,19 @@ public class AuthService {
 
     public ValidationResponse validateToken(String token) {
         try {
-            if (jwtUtil.validateToken(token)) {
-                Long userId = jwtUtil.getUserIdFromToken(token);
-                String username = jwtUtil.getUsernameFromToken(token);
-                return new ValidationResponse(true, userId, username);
-            }
+            TokenClaims claims = jwtUtil.parseToken(token);
+            return new ValidationResponse(true, claims.userId(), claims.username());
         } catch (Exception e) {
             // Token is invalid
         }
         return new ValidationResponse(false, null, null);
     }
+
+    public List<ValidationResponse> validateTokens(List<String> tokens) {
+        List<ValidationResponse> responses = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            responses.add(validateToken(token));
+        }
+        return responses;
+    }
 }
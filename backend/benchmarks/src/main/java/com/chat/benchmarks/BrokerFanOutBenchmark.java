@@ -0,0 +1,125 @@
+package com.chat.benchmarks;
+
+import com.chat.broker.ShardedBrokerMessageHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fan-out of one message per room to in-memory sessions through the simple broker and the
+ * sharded broker. Sessions are spread evenly over the rooms; an operation completes once every
+ * session has received its message on the client outbound channel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BrokerFanOutBenchmark {
+
+    @Param({"simple", "sharded"})
+    public String broker;
+
+    @Param({"10", "1000", "10000"})
+    public int sessions;
+
+    @Param({"1", "16"})
+    public int rooms;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private AbstractBrokerMessageHandler handler;
+    private Message<?>[] messages;
+    private long expected;
+
+    @Setup
+    public void setup() {
+        ExecutorSubscribableChannel clientInboundChannel = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        MessageChannel clientOutboundChannel = (message, timeout) -> {
+            if (SimpMessageType.MESSAGE.equals(SimpMessageHeaderAccessor.getMessageType(message.getHeaders()))) {
+                delivered.incrementAndGet();
+            }
+            return true;
+        };
+        handler = "sharded".equals(broker)
+                ? new ShardedBrokerMessageHandler(clientInboundChannel, clientOutboundChannel, brokerChannel,
+                        List.of("/topic"), Runtime.getRuntime().availableProcessors())
+                : new SimpleBrokerMessageHandler(clientInboundChannel, clientOutboundChannel, brokerChannel,
+                        List.of("/topic"));
+        handler.start();
+
+        for (int i = 0; i < sessions; i++) {
+            SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+            connect.setSessionId("session-" + i);
+            handler.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+
+            SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            subscribe.setSessionId("session-" + i);
+            subscribe.setSubscriptionId("sub-0");
+            subscribe.setDestination(destination(i % rooms));
+            handler.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        }
+
+        byte[] payload = ("{\"id\":1234567,\"chatRoomId\":1,\"senderId\":98765,\"senderName\":\"alice\","
+                + "\"content\":\"Hello, how is everyone doing today?\",\"timestamp\":\"2024-05-01T10:11:12.345678\","
+                + "\"status\":\"sent\",\"type\":\"CHAT\"}").getBytes(StandardCharsets.UTF_8);
+        messages = new Message<?>[rooms];
+        for (int room = 0; room < rooms; room++) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(destination(room));
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            messages[room] = MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+        }
+        awaitDelivered(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.stop();
+    }
+
+    @Benchmark
+    public long fanOut() {
+        expected += sessions;
+        for (Message<?> message : messages) {
+            handler.handleMessage(message);
+        }
+        awaitDelivered(expected);
+        return expected;
+    }
+
+    private void awaitDelivered(long count) {
+        // The sharded broker delivers on its worker threads; the simple broker is already done
+        while (delivered.get() < count) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static String destination(int room) {
+        return "/topic/messages/" + room;
+    }
+}
@@ -0,0 +1,86 @@
+package com.chat.benchmarks;
+
+import com.chat.filter.JwtAuthenticationFilter;
+import com.chat.filter.VerifiedTokenCache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gateway authentication of one request through {@link JwtAuthenticationFilter}, with the
+ * verified-token cache hit on every request and with it bypassed so each request pays for
+ * signature verification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    static final String SECRET = "benchmark-secret-key-that-is-at-least-256-bits-long";
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private GatewayFilter filter;
+    private String authorization;
+    private final GatewayFilterChain chain = exchange -> Mono.empty();
+
+    @Setup
+    public void setup() {
+        VerifiedTokenCache cache = cached
+                ? new VerifiedTokenCache(100_000)
+                : new VerifiedTokenCache(100_000) {
+                    @Override
+                    public VerifiedToken get(String token) {
+                        return null;
+                    }
+                };
+        JwtAuthenticationFilter authenticationFilter = new JwtAuthenticationFilter(cache, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(authenticationFilter, "secret", SECRET);
+        authenticationFilter.init();
+        filter = authenticationFilter.apply(new JwtAuthenticationFilter.Config());
+
+        String token = Jwts.builder()
+                .subject("42")
+                .claim("username", "alice")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        authorization = "Bearer " + token;
+    }
+
+    @Benchmark
+    public Object authenticate() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .get("/api/chat/rooms")
+                .header(HttpHeaders.AUTHORIZATION, authorization));
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+}
@@ -0,0 +1,117 @@
+package com.chat.benchmarks;
+
+import com.chat.codec.ChatMessageCodec;
+import com.chat.codec.ClusterMessageSerializer;
+import com.chat.dto.ChatMessageDTO;
+import com.chat.dto.ClusterMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of {@link ChatMessageDTO}: the JSON used for STOMP frames by default
+ * against the compact codec, and the JSON Redis serializer against the compact one for
+ * cluster messages. The {@code bytes} secondary result is the encoded size of one message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageEncodingBenchmark {
+
+    @Param({"20", "500"})
+    public int contentLength;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GenericJackson2JsonRedisSerializer jsonRedisSerializer = new GenericJackson2JsonRedisSerializer();
+    private final ClusterMessageSerializer compactRedisSerializer = new ClusterMessageSerializer();
+
+    private ChatMessageDTO message;
+    private ClusterMessage clusterMessage;
+    private byte[] json;
+    private byte[] compact;
+    private byte[] jsonCluster;
+    private byte[] compactCluster;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long bytes;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        message = new ChatMessageDTO(
+                1_234_567L, 4_321L, 98_765L, "alice", "x".repeat(contentLength),
+                "2024-05-01T10:11:12.345678", "sent", ChatMessageDTO.MessageType.CHAT);
+        clusterMessage = new ClusterMessage(UUID.randomUUID().toString(), message);
+        json = objectMapper.writeValueAsBytes(message);
+        compact = ChatMessageCodec.encode(message);
+        jsonCluster = jsonRedisSerializer.serialize(clusterMessage);
+        compactCluster = compactRedisSerializer.serialize(clusterMessage);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode(EncodedSize size) throws Exception {
+        byte[] encoded = objectMapper.writeValueAsBytes(message);
+        size.bytes = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public ChatMessageDTO jsonDecode() throws Exception {
+        return objectMapper.readValue(json, ChatMessageDTO.class);
+    }
+
+    @Benchmark
+    public byte[] compactEncode(EncodedSize size) {
+        byte[] encoded = ChatMessageCodec.encode(message);
+        size.bytes = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public ChatMessageDTO compactDecode() {
+        return ChatMessageCodec.decode(compact);
+    }
+
+    @Benchmark
+    public byte[] redisJsonSerialize(EncodedSize size) {
+        byte[] encoded = jsonRedisSerializer.serialize(clusterMessage);
+        size.bytes = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public Object redisJsonDeserialize() {
+        return jsonRedisSerializer.deserialize(jsonCluster);
+    }
+
+    @Benchmark
+    public byte[] redisCompactSerialize(EncodedSize size) {
+        byte[] encoded = compactRedisSerializer.serialize(clusterMessage);
+        size.bytes = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public ClusterMessage redisCompactDeserialize() {
+        return compactRedisSerializer.deserialize(compactCluster);
+    }
+}
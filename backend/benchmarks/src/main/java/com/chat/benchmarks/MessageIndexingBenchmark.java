@@ -0,0 +1,66 @@
+package com.chat.benchmarks;
+
+import com.chat.benchmarks.MessageSearchBenchmark.MessageGenerator;
+import com.chat.search.MessageIndex;
+import com.chat.search.SegmentBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message cost of chat-service search indexing: tokenizing {@link #BATCH} synthetic messages
+ * into a {@link SegmentBuilder} and flushing them as one segment, as the indexer thread does on
+ * every refresh.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MessageIndexingBenchmark {
+
+    static final int BATCH = 10_000;
+
+    private final MessageGenerator generator = new MessageGenerator(7);
+    private final SegmentBuilder builder = new SegmentBuilder();
+    private Path directory;
+    private MessageIndex index;
+    private long nextId = 1;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("message-index-benchmark");
+        index = new MessageIndex(directory, 10, Integer.MAX_VALUE);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        MessageSearchBenchmark.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int indexBatch() throws IOException {
+        for (int i = 0; i < BATCH; i++) {
+            builder.add(nextId++, generator.room(), generator.content());
+        }
+        index.flush(builder);
+        return index.segmentCount();
+    }
+}
@@ -0,0 +1,49 @@
+package com.chat.benchmarks;
+
+import com.chat.dto.ChatMessageDTO;
+import com.chat.model.Message;
+import com.chat.service.ChatService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The entity-to-DTO mapping done by {@link ChatService#toDTO} for every message served from
+ * history, including the ISO timestamp formatting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageMappingBenchmark {
+
+    private Message message;
+
+    @Setup
+    public void setup() {
+        message = new Message();
+        message.setId(1_234_567L);
+        message.setChatRoomId(4_321L);
+        message.setSenderId(98_765L);
+        message.setContent("Hello, how is everyone doing today?");
+        message.setTimestamp(LocalDateTime.of(2024, 5, 1, 10, 11, 12, 345_678_000));
+        message.setStatus("sent");
+    }
+
+    @Benchmark
+    public ChatMessageDTO toDTO() {
+        return ChatService.toDTO(message);
+    }
+}
@@ -0,0 +1,132 @@
+package com.chat.benchmarks;
+
+import com.chat.search.MessageIndex;
+import com.chat.search.SegmentBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
+
+/**
+ * Top-20 chat-service message search over an index of synthetic messages drawn from a
+ * Zipf-distributed vocabulary, restricted to the rooms of one user. Indexing cost is measured
+ * separately by {@link MessageIndexingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MessageSearchBenchmark {
+
+    private static final int VOCABULARY = 50_000;
+    private static final int ROOMS = 10_000;
+    private static final int USER_ROOMS = 200;
+
+    @Param({"1000000"})
+    public int messages;
+
+    // Common, mid-frequency and rare terms, alone and combined
+    @Param({"w3", "w150", "w3 w40", "w150 w2000", "w9000"})
+    public String query;
+
+    private Path directory;
+    private MessageIndex index;
+    private LongPredicate userRooms;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("message-search-benchmark");
+        index = new MessageIndex(directory, 10, Integer.MAX_VALUE);
+        MessageGenerator generator = new MessageGenerator(42);
+        SegmentBuilder builder = new SegmentBuilder();
+        for (long id = 1; id <= messages; id++) {
+            builder.add(id, generator.room(), generator.content());
+            if (builder.docCount() == 50_000) {
+                index.flush(builder);
+                while (index.maybeMerge()) {
+                    // Settle into the segment structure a long-running node would have
+                }
+            }
+        }
+        index.flush(builder);
+
+        // Rooms are assigned uniformly, so a user in USER_ROOMS rooms sees ~2% of the messages
+        userRooms = room -> room % (ROOMS / USER_ROOMS) == 0;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public List<MessageIndex.Hit> search() {
+        return index.search(query, userRooms, null, 20);
+    }
+
+    /** Messages of 3-30 words over a Zipf(1.0) vocabulary "w0".."w49999", w0 being the most frequent. */
+    static final class MessageGenerator {
+
+        private final Random random;
+        private final double[] cumulative = new double[VOCABULARY];
+        private final StringBuilder content = new StringBuilder();
+
+        MessageGenerator(long seed) {
+            random = new Random(seed);
+            double sum = 0;
+            for (int rank = 0; rank < VOCABULARY; rank++) {
+                sum += 1.0 / (rank + 1);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < VOCABULARY; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        long room() {
+            return 1 + random.nextInt(ROOMS);
+        }
+
+        String content() {
+            content.setLength(0);
+            int words = 3 + random.nextInt(28);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    content.append(' ');
+                }
+                int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+                content.append('w').append(rank >= 0 ? rank : -rank - 1);
+            }
+            return content.toString();
+        }
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.chat.benchmarks;
+
+import com.chat.service.PresenceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * user-service {@link PresenceService} against an embedded Redis server whose online set holds
+ * {@code members} users with recent heartbeats: heartbeats (ZADD), the batched online check
+ * (ZMSCORE), paginated reads of the online list, and expiry sweeps. Each call includes the
+ * round trip to Redis over loopback, as in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PresenceBenchmark {
+
+    private static final String ONLINE_USERS_KEY = "online:users";
+
+    @Param({"100000"})
+    public int members;
+
+    // Users checked per filterOnline call, e.g. the participants of a room
+    @Param({"50"})
+    public int batch;
+
+    @Param({"50"})
+    public int pageSize;
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private PresenceService presenceService;
+
+    @Setup
+    public void setup() throws IOException {
+        int port = freePort();
+        redisServer = RedisServer.newRedisServer()
+                .port(port)
+                .bind("127.0.0.1")
+                .setting("save \"\"")
+                .setting("appendonly no")
+                .build();
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        presenceService = new PresenceService(redisTemplate);
+
+        // Heartbeats spread over the last minute, well inside the presence timeout
+        long now = System.currentTimeMillis();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<TypedTuple<String>> chunk = new HashSet<>();
+        for (int id = 1; id <= members; id++) {
+            chunk.add(new DefaultTypedTuple<>(String.valueOf(id), (double) (now - random.nextLong(60_000))));
+            if (chunk.size() == 10_000 || id == members) {
+                redisTemplate.opsForZSet().add(ONLINE_USERS_KEY, chunk);
+                chunk.clear();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Benchmark
+    public void heartbeat() {
+        presenceService.heartbeat(randomMember());
+    }
+
+    @Benchmark
+    public Set<Long> filterOnline() {
+        List<Long> userIds = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++) {
+            userIds.add(randomMember());
+        }
+        return presenceService.filterOnline(userIds);
+    }
+
+    @Benchmark
+    public Set<Long> onlinePage() {
+        long offset = ThreadLocalRandom.current().nextLong(members - pageSize);
+        return presenceService.getOnlineUsers(offset, pageSize);
+    }
+
+    @Benchmark
+    public long countOnline() {
+        return presenceService.countOnlineUsers();
+    }
+
+    /**
+     * One sweep over {@code expired} stale members, added before each call next to the
+     * {@code members} online ones; the sweep removes them in batches of {@code sweepBatch}.
+     */
+    @Benchmark
+    public long removeExpired(ExpiredMembers stale) {
+        return presenceService.removeExpired(stale.sweepBatch);
+    }
+
+    private long randomMember() {
+        return 1 + ThreadLocalRandom.current().nextInt(members);
+    }
+
+    @State(Scope.Benchmark)
+    public static class ExpiredMembers {
+
+        @Param({"10000"})
+        public int expired;
+
+        @Param({"1000"})
+        public int sweepBatch;
+
+        private Set<TypedTuple<String>> tuples;
+
+        @Setup(Level.Invocation)
+        public void addExpired(PresenceBenchmark benchmark) {
+            if (tuples == null) {
+                // Ids above the online range, with heartbeats an hour old
+                double stale = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+                tuples = new HashSet<>(expired * 2);
+                for (int i = 1; i <= expired; i++) {
+                    tuples.add(new DefaultTypedTuple<>(String.valueOf(benchmark.members + i), stale));
+                }
+            }
+            benchmark.redisTemplate.opsForZSet().add(ONLINE_USERS_KEY, tuples);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
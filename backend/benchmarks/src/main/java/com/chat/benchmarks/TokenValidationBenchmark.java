@@ -0,0 +1,133 @@
+package com.chat.benchmarks;
+
+import com.chat.dto.ValidationResponse;
+import com.chat.security.JwtUtil;
+import com.chat.service.AuthService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * auth-service token validation as served by {@code /api/auth/validate} and the batch endpoint,
+ * against a baseline reproducing the earlier {@code JwtUtil} path: one signature check and two
+ * more parses for the user id and username, each rebuilding the {@link SecretKey} and parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenValidationBenchmark {
+
+    private JwtUtil jwtUtil;
+    private AuthService authService;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", JwtFilterBenchmark.SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", TimeUnit.DAYS.toMillis(1));
+        jwtUtil.init();
+        // Validation uses neither the user repository nor the password encoder
+        authService = new AuthService(null, null, jwtUtil);
+        token = jwtUtil.generateToken(42L, "alice");
+    }
+
+    @Benchmark
+    public ValidationResponse validateToken() {
+        return authService.validateToken(token);
+    }
+
+    @Benchmark
+    public ValidationResponse legacyValidateToken() {
+        return legacyValidate(token);
+    }
+
+    @Benchmark
+    public List<ValidationResponse> validateTokens(Batch batch) {
+        return authService.validateTokens(batch.tokens);
+    }
+
+    @Benchmark
+    public List<ValidationResponse> legacyValidateTokens(Batch batch) {
+        List<ValidationResponse> responses = new ArrayList<>(batch.tokens.size());
+        for (String t : batch.tokens) {
+            responses.add(legacyValidate(t));
+        }
+        return responses;
+    }
+
+    /** The tokens of one batch validation request, issued to distinct users. */
+    @State(Scope.Benchmark)
+    public static class Batch {
+
+        @Param({"1", "10", "100"})
+        public int size;
+
+        private List<String> tokens;
+
+        @Setup
+        public void setup(TokenValidationBenchmark benchmark) {
+            tokens = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                tokens.add(benchmark.jwtUtil.generateToken(1_000L + i, "user" + i));
+            }
+        }
+    }
+
+    /** {@code AuthService.validateToken} as it was before the parser and key were cached. */
+    private static ValidationResponse legacyValidate(String token) {
+        try {
+            if (legacyIsValid(token)) {
+                Long userId = Long.parseLong(legacyClaims(token).getSubject());
+                String username = legacyClaims(token).get("username", String.class);
+                return new ValidationResponse(true, userId, username);
+            }
+        } catch (Exception e) {
+            // Token is invalid
+        }
+        return new ValidationResponse(false, null, null);
+    }
+
+    private static boolean legacyIsValid(String token) {
+        try {
+            legacyClaims(token);
+            return true;
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parser()
+                .verifyWith(legacySigningKey())
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private static SecretKey legacySigningKey() {
+        return Keys.hmacShaKeyFor(JwtFilterBenchmark.SECRET.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,69 @@
+package com.chat.benchmarks;
+
+import com.chat.search.UsernameIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-20 user search over a million synthetic usernames in user-service's {@link UsernameIndex}.
+ * Short queries are answered from the prefix map alone; longer ones also intersect trigram
+ * posting lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UsernameIndexBenchmark {
+
+    private static final String[] SYLLABLES = {
+            "al", "be", "cor", "dan", "el", "fa", "gio", "han", "is", "jo",
+            "ka", "li", "mar", "ne", "ol", "pe", "qui", "ro", "sa", "te",
+            "ur", "vi", "wen", "xa", "yu", "ze"
+    };
+
+    @Param({"1000000"})
+    public int users;
+
+    @Param({"ma", "mar", "lima", "xyzq"})
+    public String query;
+
+    private UsernameIndex index;
+
+    @Setup
+    public void setup() {
+        index = new UsernameIndex();
+        Random random = new Random(42);
+        StringBuilder name = new StringBuilder();
+        for (int id = 1; id <= users; id++) {
+            name.setLength(0);
+            int parts = 2 + random.nextInt(3);
+            for (int p = 0; p < parts; p++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            if (random.nextBoolean()) {
+                name.append(random.nextInt(1000));
+            }
+            index.put(id, name.toString());
+        }
+    }
+
+    @Benchmark
+    public List<Long> search() {
+        return index.search(query, 20);
+    }
+}
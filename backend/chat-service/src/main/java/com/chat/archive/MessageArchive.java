@@ -0,0 +1,220 @@
+package com.chat.archive;
+
+import com.chat.model.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Serves message history from archived partitions. Each archived partition is a directory
+ * {@code {dir}/messages_YYYY_MM} of segment files ({@code part-NNNN.seg}); directories are
+ * published with an atomic rename and never modified afterwards, so every node sharing the
+ * directory picks up new archives on its next refresh.
+ * <p>
+ * The history read path passes its hot rows through {@link #mergeBefore} / {@link #mergeAfter},
+ * which only touch the segments when a room has archived messages that could belong on the
+ * requested page. Rows that are present in both places while a partition awaits its drop are
+ * returned once.
+ */
+@Service
+@Slf4j
+public class MessageArchive {
+
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String STAGING_SUFFIX = ".tmp";
+
+    private static final Comparator<Message> NEWEST_FIRST = Comparator.comparing(Message::getId).reversed();
+    private static final Comparator<Message> OLDEST_FIRST = Comparator.comparing(Message::getId);
+
+    private final Path directory;
+    private final long refreshIntervalMs;
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "archive-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Map<String, ArchivedPartition> partitions = Map.of();
+    private volatile List<Segment> segments = List.of();
+
+    public MessageArchive(
+            @Value("${chat.archive.dir:/var/lib/chat/archive}") String directory,
+            @Value("${chat.archive.refresh-interval-ms:60000}") long refreshIntervalMs) {
+        this.directory = Path.of(directory);
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        refresh();
+        refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    ArchivedPartition getPartition(String name) {
+        return partitions.get(name);
+    }
+
+    /** Loads newly published partition directories and forgets removed ones. */
+    synchronized void refresh() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Map<String, ArchivedPartition> loaded = new HashMap<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                String name = entry.getFileName().toString();
+                if (!Files.isDirectory(entry) || name.endsWith(STAGING_SUFFIX)) {
+                    continue;
+                }
+                long publishedAt = Files.getLastModifiedTime(entry).toMillis();
+                ArchivedPartition current = partitions.get(name);
+                if (current != null && current.publishedAt() == publishedAt) {
+                    loaded.put(name, current);
+                    continue;
+                }
+                try {
+                    loaded.put(name, load(name, entry, publishedAt));
+                } catch (IOException | RuntimeException e) {
+                    log.error("Error loading archived partition {}", entry, e);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error listing message archive {}", directory, e);
+            return;
+        }
+
+        if (!loaded.keySet().equals(partitions.keySet())) {
+            log.info("Serving {} archived message partitions from {}", loaded.size(), directory);
+        }
+        List<Segment> all = new ArrayList<>();
+        loaded.values().forEach(partition -> all.addAll(partition.segments()));
+        partitions = Map.copyOf(loaded);
+        segments = List.copyOf(all);
+    }
+
+    /**
+     * Merges a backwards page of hot rows (newest first, ids below {@code before}) with the
+     * room's archived messages and returns at most {@code limit} rows, newest first.
+     */
+    public List<Message> mergeBefore(Long roomId, Long before, List<Message> hot, int limit) {
+        List<Segment> current = segments;
+        if (current.isEmpty()) {
+            return hot;
+        }
+        long newestArchived = newestArchivedId(current, roomId);
+        // A full hot page whose oldest row is newer than anything archived is already complete
+        if (newestArchived < 0 || (hot.size() >= limit && hot.get(hot.size() - 1).getId() > newestArchived)) {
+            return hot;
+        }
+
+        long bound = before != null ? before : Long.MAX_VALUE;
+        List<Message> merged = new ArrayList<>(hot);
+        for (Segment segment : current) {
+            segment.collectBefore(roomId, bound, limit, merged);
+        }
+        return distinct(merged, NEWEST_FIRST, limit);
+    }
+
+    /**
+     * Merges a forward page of hot rows (oldest first, ids above {@code after}) with the room's
+     * archived messages and returns at most {@code limit} rows, oldest first.
+     */
+    public List<Message> mergeAfter(Long roomId, Long after, List<Message> hot, int limit) {
+        List<Segment> current = segments;
+        if (current.isEmpty() || newestArchivedId(current, roomId) <= after) {
+            return hot;
+        }
+
+        List<Message> merged = new ArrayList<>(hot);
+        for (Segment segment : current) {
+            segment.collectAfter(roomId, after, limit, merged);
+        }
+        return distinct(merged, OLDEST_FIRST, limit);
+    }
+
+    /** Looks up one archived message of the room. */
+    public Optional<Message> findById(Long roomId, Long messageId) {
+        List<Message> found = new ArrayList<>(1);
+        for (Segment segment : segments) {
+            segment.collectAfter(roomId, messageId - 1, 1, found);
+            if (!found.isEmpty() && found.get(0).getId().equals(messageId)) {
+                return Optional.of(found.get(0));
+            }
+            found.clear();
+        }
+        return Optional.empty();
+    }
+
+    /** Passes every archived message to {@code consumer}, for rebuilding derived data. */
+    public void forEachArchived(Consumer<Message> consumer) {
+        for (Segment segment : segments) {
+            segment.forEach(consumer);
+        }
+    }
+
+    private static long newestArchivedId(List<Segment> current, long roomId) {
+        long newest = -1;
+        for (Segment segment : current) {
+            newest = Math.max(newest, segment.maxId(roomId));
+        }
+        return newest;
+    }
+
+    private static List<Message> distinct(List<Message> rows, Comparator<Message> order, int limit) {
+        rows.sort(order);
+        List<Message> result = new ArrayList<>(Math.min(rows.size(), limit));
+        for (Message row : rows) {
+            if (result.size() == limit) {
+                break;
+            }
+            if (result.isEmpty() || !result.get(result.size() - 1).getId().equals(row.getId())) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private static ArchivedPartition load(String name, Path partitionDirectory, long publishedAt) throws IOException {
+        List<Segment> parts = new ArrayList<>();
+        long messageCount = 0;
+        try (Stream<Path> files = Files.list(partitionDirectory)) {
+            for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                if (file.getFileName().toString().endsWith(SEGMENT_SUFFIX)) {
+                    Segment segment = Segment.open(file);
+                    parts.add(segment);
+                    messageCount += segment.messageCount();
+                }
+            }
+        }
+        return new ArchivedPartition(name, publishedAt, List.copyOf(parts), messageCount);
+    }
+
+    record ArchivedPartition(String name, long publishedAt, List<Segment> segments, long messageCount) {
+    }
+}
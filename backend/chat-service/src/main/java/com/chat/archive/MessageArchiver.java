@@ -0,0 +1,286 @@
+package com.chat.archive;
+
+import com.chat.model.Message;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the monthly partitions of {@code messages} ({@code messages_YYYY_MM}): creates the
+ * partitions for the coming months and, when archiving is enabled, moves partitions older than
+ * {@code hot-months} into {@link MessageArchive} segment files.
+ * <p>
+ * A cold partition is archived in two runs. The first exports it, ordered by (room, id), into a
+ * staging directory that is renamed into place once every file is on disk. A later run, at least
+ * {@code drop-grace-ms} after publication so that all nodes have loaded the segments, checks the
+ * archived message count against the partition and drops it. One node runs the job at a time,
+ * under a Postgres advisory lock; on databases without a partitioned {@code messages} table it
+ * stops after the first check.
+ */
+@Service
+@Slf4j
+public class MessageArchiver {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("messages_(\\d{4})_(\\d{2})");
+    private static final long LOCK_KEY = 0x6D73676172636876L;
+    private static final int FETCH_SIZE = 1000;
+    // Segments are mapped with a single buffer, which caps them below 2 GiB
+    private static final long MAX_PART_BYTES = 1L << 30;
+
+    private static final String IS_PARTITIONED = "SELECT COUNT(*) FROM pg_partitioned_table pt "
+            + "JOIN pg_class c ON c.oid = pt.partrelid WHERE c.relname = 'messages'";
+    private static final String LIST_PARTITIONS = "SELECT c.relname FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+            + "WHERE p.relname = 'messages'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MessageArchive messageArchive;
+    private final boolean archiveEnabled;
+    private final int hotMonths;
+    private final int premakeMonths;
+    private final long checkIntervalMs;
+    private final long dropGraceMs;
+    private final int blockMessages;
+    private final long maxPartBytes;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "message-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MessageArchiver(
+            JdbcTemplate jdbcTemplate,
+            MessageArchive messageArchive,
+            @Value("${chat.archive.enabled:false}") boolean archiveEnabled,
+            @Value("${chat.archive.hot-months:6}") int hotMonths,
+            @Value("${chat.archive.premake-months:2}") int premakeMonths,
+            @Value("${chat.archive.check-interval-ms:3600000}") long checkIntervalMs,
+            @Value("${chat.archive.drop-grace-ms:600000}") long dropGraceMs,
+            @Value("${chat.archive.block-messages:256}") int blockMessages,
+            @Value("${chat.archive.max-part-bytes:1073741824}") long maxPartBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.messageArchive = messageArchive;
+        this.archiveEnabled = archiveEnabled;
+        this.hotMonths = Math.max(1, hotMonths);
+        this.premakeMonths = Math.max(1, premakeMonths);
+        this.checkIntervalMs = checkIntervalMs;
+        this.dropGraceMs = dropGraceMs;
+        this.blockMessages = blockMessages;
+        this.maxPartBytes = Math.min(maxPartBytes, MAX_PART_BYTES);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::maintain, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void maintain() {
+        try {
+            // Every statement runs on one connection, which holds the session-level advisory lock
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try {
+                    maintain(connection, new JdbcTemplate(new SingleConnectionDataSource(connection, true)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Error maintaining message partitions", e);
+        }
+    }
+
+    private void maintain(Connection connection, JdbcTemplate jdbc) throws SQLException, IOException {
+        if (!isPartitioned(jdbc)) {
+            log.info("messages is not a partitioned table, partition maintenance disabled");
+            scheduler.shutdown();
+            return;
+        }
+        if (!Boolean.TRUE.equals(jdbc.queryForObject("SELECT pg_try_advisory_lock(?)", Boolean.class, LOCK_KEY))) {
+            log.debug("Partition maintenance is running on another node");
+            return;
+        }
+        try {
+            createPartitions(jdbc);
+            if (archiveEnabled) {
+                archivePartitions(connection, jdbc);
+            }
+        } finally {
+            jdbc.queryForObject("SELECT pg_advisory_unlock(?)", Boolean.class, LOCK_KEY);
+        }
+    }
+
+    private static boolean isPartitioned(JdbcTemplate jdbc) {
+        try {
+            Long count = jdbc.queryForObject(IS_PARTITIONED, Long.class);
+            return count != null && count > 0;
+        } catch (DataAccessException e) {
+            // Not Postgres, e.g. the embedded database of the load test
+            return false;
+        }
+    }
+
+    private void createPartitions(JdbcTemplate jdbc) {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= premakeMonths; i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                jdbc.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF messages "
+                        + "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            } catch (DataAccessException e) {
+                // Fails when the default partition already holds rows of that month
+                log.error("Error creating message partition for {}", month, e);
+            }
+        }
+    }
+
+    private void archivePartitions(Connection connection, JdbcTemplate jdbc) throws SQLException, IOException {
+        YearMonth cutoff = YearMonth.now().minusMonths(hotMonths);
+        List<String> names = jdbc.queryForList(LIST_PARTITIONS, String.class);
+        for (String name : names.stream().sorted().toList()) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()
+                    && YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))).isBefore(cutoff)) {
+                archivePartition(name, connection, jdbc);
+            }
+        }
+    }
+
+    private void archivePartition(String name, Connection connection, JdbcTemplate jdbc)
+            throws SQLException, IOException {
+        messageArchive.refresh();
+        MessageArchive.ArchivedPartition archived = messageArchive.getPartition(name);
+        if (archived == null) {
+            long exported = export(name, connection);
+            messageArchive.refresh();
+            log.info("Archived {} messages of partition {}", exported, name);
+            return;
+        }
+        if (System.currentTimeMillis() - archived.publishedAt() < dropGraceMs) {
+            return;
+        }
+
+        Long rows = jdbc.queryForObject("SELECT COUNT(*) FROM " + name, Long.class);
+        if (rows == null || rows != archived.messageCount()) {
+            // Rows changed after the export; archive the partition again and retry the drop later
+            log.warn("Partition {} has {} messages but its archive has {}, re-exporting",
+                    name, rows, archived.messageCount());
+            deleteRecursively(messageArchive.getDirectory().resolve(name));
+            messageArchive.refresh();
+            export(name, connection);
+            messageArchive.refresh();
+            return;
+        }
+        jdbc.execute("DROP TABLE " + name);
+        log.info("Dropped partition {} after archiving its {} messages", name, rows);
+    }
+
+    /** Writes the partition's segments to a staging directory and publishes it atomically. */
+    private long export(String name, Connection connection) throws SQLException, IOException {
+        Path target = messageArchive.getDirectory().resolve(name);
+        Path staging = messageArchive.getDirectory().resolve(name + MessageArchive.STAGING_SUFFIX);
+        boolean autoCommit = connection.getAutoCommit();
+        // The driver only streams a result set with a fetch size inside a transaction
+        connection.setAutoCommit(false);
+        SegmentWriter writer = null;
+        long exported = 0;
+        int parts = 0;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, chat_room_id, sender_id, content, timestamp, status FROM " + name
+                        + " ORDER BY chat_room_id, id")) {
+            deleteRecursively(staging);
+            Files.createDirectories(staging);
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    if (writer == null) {
+                        writer = new SegmentWriter(staging.resolve(String.format("part-%04d%s", parts++,
+                                MessageArchive.SEGMENT_SUFFIX)), blockMessages);
+                    }
+                    writer.append(new Message(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getString(4),
+                            rs.getTimestamp(5).toLocalDateTime(), rs.getString(6)));
+                    exported++;
+                    if (writer.size() >= maxPartBytes) {
+                        writer.finish();
+                        writer.close();
+                        writer = null;
+                    }
+                }
+            }
+            if (writer != null) {
+                writer.finish();
+                writer.close();
+                writer = null;
+            }
+            connection.commit();
+
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            return exported;
+        } catch (IOException | SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            closeQuietly(writer);
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("messages_%04d_%02d", month.getYear(), month.getMonthValue());
+    }
+
+    private static void closeQuietly(SegmentWriter writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Error closing segment writer", e);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> entries = Files.walk(path)) {
+            for (Path entry : entries.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
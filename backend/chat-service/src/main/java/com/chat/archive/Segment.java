@@ -0,0 +1,240 @@
+package com.chat.archive;
+
+import com.chat.codec.CompactInput;
+import com.chat.model.Message;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only, memory-mapped view of an archived segment file written by {@link SegmentWriter}.
+ * <pre>
+ * [block]*        deflated runs of one room's messages, ascending by id
+ * [block index]   per block: firstId(8) lastId(8) offset(8) compressedLength(4) rawLength(4)
+ * [room index]    per room, ascending by room id: roomId(8) firstBlock(4) blockCount(4)
+ * [footer]        magic(4) version(4) blockIndexOffset(8) blockCount(4) roomIndexOffset(8)
+ *                 roomCount(4) messageCount(8)
+ * </pre>
+ * A lookup binary-searches the room index and then the room's blocks, and inflates only the
+ * blocks it reads; the indexes are never copied onto the heap. Reads use absolute positions, so
+ * one instance can be shared by any number of threads.
+ */
+final class Segment {
+
+    static final int MAGIC = 0x43485347; // "CHSG"
+    static final int VERSION = 1;
+    static final int BLOCK_ENTRY_BYTES = 32;
+    static final int ROOM_ENTRY_BYTES = 16;
+    static final int FOOTER_BYTES = 40;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int blockIndexOffset;
+    private final int blockCount;
+    private final int roomIndexOffset;
+    private final int roomCount;
+    private final long messageCount;
+
+    private Segment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        int footer = buffer.capacity() - FOOTER_BYTES;
+        if (buffer.getInt(footer) != MAGIC || buffer.getInt(footer + 4) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " message segment: " + path);
+        }
+        this.blockIndexOffset = (int) buffer.getLong(footer + 8);
+        this.blockCount = buffer.getInt(footer + 16);
+        this.roomIndexOffset = (int) buffer.getLong(footer + 20);
+        this.roomCount = buffer.getInt(footer + 28);
+        this.messageCount = buffer.getLong(footer + 32);
+        if ((long) roomIndexOffset + (long) roomCount * ROOM_ENTRY_BYTES != footer) {
+            throw new IOException("Truncated message segment: " + path);
+        }
+    }
+
+    static Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FOOTER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid message segment size " + size + ": " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    long messageCount() {
+        return messageCount;
+    }
+
+    /** Returns the room's highest archived message id in this segment, or -1 if it has none. */
+    long maxId(long roomId) {
+        int room = findRoom(roomId);
+        if (room < 0) {
+            return -1;
+        }
+        return blockLastId(roomFirstBlock(room) + roomBlockCount(room) - 1);
+    }
+
+    /** Adds up to {@code limit} of the room's messages with an id below {@code before}, newest first. */
+    void collectBefore(long roomId, long before, int limit, List<Message> out) {
+        int room = findRoom(roomId);
+        if (room < 0) {
+            return;
+        }
+        int first = roomFirstBlock(room);
+        // First block starting at or after the bound; everything before it may qualify
+        int low = first;
+        int high = first + roomBlockCount(room);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blockFirstId(mid) < before) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int collected = 0;
+        for (int block = low - 1; block >= first && collected < limit; block--) {
+            List<Message> messages = readBlock(block, roomId);
+            for (int i = messages.size() - 1; i >= 0 && collected < limit; i--) {
+                if (messages.get(i).getId() < before) {
+                    out.add(messages.get(i));
+                    collected++;
+                }
+            }
+        }
+    }
+
+    /** Adds up to {@code limit} of the room's messages with an id above {@code after}, oldest first. */
+    void collectAfter(long roomId, long after, int limit, List<Message> out) {
+        int room = findRoom(roomId);
+        if (room < 0) {
+            return;
+        }
+        int end = roomFirstBlock(room) + roomBlockCount(room);
+        // First block ending after the bound
+        int low = roomFirstBlock(room);
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blockLastId(mid) <= after) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int collected = 0;
+        for (int block = low; block < end && collected < limit; block++) {
+            for (Message message : readBlock(block, roomId)) {
+                if (message.getId() > after && collected < limit) {
+                    out.add(message);
+                    collected++;
+                }
+            }
+        }
+    }
+
+    /** Passes every message of the segment to {@code consumer}, room by room in id order. */
+    void forEach(Consumer<Message> consumer) {
+        for (int room = 0; room < roomCount; room++) {
+            long roomId = buffer.getLong(roomIndexOffset + room * ROOM_ENTRY_BYTES);
+            int first = roomFirstBlock(room);
+            for (int block = first; block < first + roomBlockCount(room); block++) {
+                readBlock(block, roomId).forEach(consumer);
+            }
+        }
+    }
+
+    private int findRoom(long roomId) {
+        int low = 0;
+        int high = roomCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = buffer.getLong(roomIndexOffset + mid * ROOM_ENTRY_BYTES);
+            if (value < roomId) {
+                low = mid + 1;
+            } else if (value > roomId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int roomFirstBlock(int room) {
+        return buffer.getInt(roomIndexOffset + room * ROOM_ENTRY_BYTES + 8);
+    }
+
+    private int roomBlockCount(int room) {
+        return buffer.getInt(roomIndexOffset + room * ROOM_ENTRY_BYTES + 12);
+    }
+
+    private long blockFirstId(int block) {
+        return buffer.getLong(blockIndexOffset + block * BLOCK_ENTRY_BYTES);
+    }
+
+    private long blockLastId(int block) {
+        return buffer.getLong(blockIndexOffset + block * BLOCK_ENTRY_BYTES + 8);
+    }
+
+    private List<Message> readBlock(int block, long roomId) {
+        int entry = blockIndexOffset + block * BLOCK_ENTRY_BYTES;
+        int offset = (int) buffer.getLong(entry + 16);
+        int length = buffer.getInt(entry + 24);
+        byte[] raw = new byte[buffer.getInt(entry + 28)];
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice(offset, length));
+            int inflated = 0;
+            while (inflated < raw.length && !inflater.finished()) {
+                int count = inflater.inflate(raw, inflated, raw.length - inflated);
+                if (count == 0 && inflater.needsInput()) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != raw.length) {
+                throw new IllegalStateException("Truncated block " + block + " in " + path);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block " + block + " in " + path, e);
+        } finally {
+            inflater.end();
+        }
+
+        CompactInput input = new CompactInput(raw);
+        int count = (int) input.readVarLong();
+        List<Message> messages = new ArrayList<>(count);
+        long id = blockFirstId(block);
+        long micros = 0;
+        for (int i = 0; i < count; i++) {
+            id += input.readVarLong();
+            long senderId = input.readVarLong();
+            micros += input.readZigZagLong();
+            String content = input.readString();
+            String status = input.readString();
+            messages.add(new Message(id, roomId, senderId, content, toLocalDateTime(micros), status));
+        }
+        return messages;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMicros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000L),
+                (int) Math.floorMod(epochMicros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
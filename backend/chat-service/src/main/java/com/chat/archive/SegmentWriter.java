@@ -0,0 +1,200 @@
+package com.chat.archive;
+
+import com.chat.codec.CompactOutput;
+import com.chat.model.Message;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a {@link Segment} file from messages appended in (room id, message id) order.
+ * <p>
+ * Each block holds up to {@code blockMessages} consecutive messages of one room, varint-encoded
+ * with {@link CompactOutput} and deflated. The block and room indexes and the footer follow the
+ * blocks, so the file is written in a single pass; {@link #finish()} forces it to disk. Not
+ * thread-safe.
+ */
+final class SegmentWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final int blockMessages;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final CompactOutput block = new CompactOutput(64 * 1024);
+    private final List<Message> pending = new ArrayList<>();
+    private byte[] compressed = new byte[64 * 1024];
+
+    // Block index: firstId, lastId, offset, compressed length, raw length per block
+    private final LongList blockIndex = new LongList();
+    // Room index: room id, first block, block count per room
+    private final LongList roomIndex = new LongList();
+    private long position;
+    private long messageCount;
+    private long currentRoom = -1;
+    private long lastId;
+    private int currentRoomFirstBlock;
+    private int blockCount;
+
+    SegmentWriter(Path file, int blockMessages) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 256 * 1024));
+        this.blockMessages = Math.max(1, blockMessages);
+    }
+
+    /** Bytes written so far, excluding the pending block and the indexes. */
+    long size() {
+        return position;
+    }
+
+    long messageCount() {
+        return messageCount + pending.size();
+    }
+
+    void append(Message message) throws IOException {
+        long roomId = message.getChatRoomId();
+        if (roomId != currentRoom) {
+            if (roomId < currentRoom) {
+                throw new IllegalArgumentException("Messages must be appended in room order");
+            }
+            flushBlock();
+            closeRoom();
+            currentRoom = roomId;
+            currentRoomFirstBlock = blockCount;
+        } else if (message.getId() <= lastId) {
+            throw new IllegalArgumentException("Messages of a room must be appended in id order");
+        }
+        lastId = message.getId();
+        pending.add(message);
+        if (pending.size() >= blockMessages) {
+            flushBlock();
+        }
+    }
+
+    /** Writes the indexes and footer and forces the file to disk. */
+    void finish() throws IOException {
+        flushBlock();
+        closeRoom();
+
+        long blockIndexOffset = position;
+        for (int i = 0; i < blockIndex.size(); i += 5) {
+            out.writeLong(blockIndex.get(i));
+            out.writeLong(blockIndex.get(i + 1));
+            out.writeLong(blockIndex.get(i + 2));
+            out.writeInt((int) blockIndex.get(i + 3));
+            out.writeInt((int) blockIndex.get(i + 4));
+        }
+        long roomIndexOffset = blockIndexOffset + (long) blockCount * Segment.BLOCK_ENTRY_BYTES;
+        for (int i = 0; i < roomIndex.size(); i += 3) {
+            out.writeLong(roomIndex.get(i));
+            out.writeInt((int) roomIndex.get(i + 1));
+            out.writeInt((int) roomIndex.get(i + 2));
+        }
+
+        out.writeInt(Segment.MAGIC);
+        out.writeInt(Segment.VERSION);
+        out.writeLong(blockIndexOffset);
+        out.writeInt(blockCount);
+        out.writeLong(roomIndexOffset);
+        out.writeInt(roomIndex.size() / 3);
+        out.writeLong(messageCount);
+        out.flush();
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Unfinished files are removed by the caller together with their staging directory
+        deflater.end();
+        out.close();
+    }
+
+    private void closeRoom() {
+        if (currentRoom >= 0 && blockCount > currentRoomFirstBlock) {
+            roomIndex.add(currentRoom);
+            roomIndex.add(currentRoomFirstBlock);
+            roomIndex.add(blockCount - currentRoomFirstBlock);
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long firstId = pending.get(0).getId();
+        long previousId = firstId;
+        long previousMicros = 0;
+        block.reset();
+        block.writeVarLong(pending.size());
+        for (Message message : pending) {
+            long micros = toEpochMicros(message);
+            block.writeVarLong(message.getId() - previousId);
+            block.writeVarLong(message.getSenderId());
+            block.writeZigZagLong(micros - previousMicros);
+            block.writeString(message.getContent());
+            block.writeString(message.getStatus() != null ? message.getStatus() : "sent");
+            previousId = message.getId();
+            previousMicros = micros;
+        }
+
+        byte[] raw = block.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        out.write(compressed, 0, length);
+
+        blockIndex.add(firstId);
+        blockIndex.add(previousId);
+        blockIndex.add(position);
+        blockIndex.add(length);
+        blockIndex.add(raw.length);
+        position += length;
+        messageCount += pending.size();
+        blockCount++;
+        pending.clear();
+    }
+
+    private static long toEpochMicros(Message message) {
+        LocalDateTime timestamp = message.getTimestamp();
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    /** Append-only long array for the indexes, which are only known once all blocks are written. */
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
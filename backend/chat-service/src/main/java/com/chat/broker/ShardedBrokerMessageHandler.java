@@ -0,0 +1,187 @@
+package com.chat.broker;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process STOMP broker that shards destinations across a fixed set of single-threaded
+ * workers. Each worker owns an exact-match destination-to-subscribers index for its shard, so
+ * subscriptions and messages for one destination are applied in order without locking and
+ * large rooms fan out in parallel with other rooms.
+ * <p>
+ * Unlike the simple broker, subscriptions are matched by exact destination only.
+ */
+public class ShardedBrokerMessageHandler extends AbstractBrokerMessageHandler {
+
+    private final Shard[] shards;
+    // sessionId -> (subscriptionId -> destination), used to route unsubscribe and disconnect
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+
+    public ShardedBrokerMessageHandler(SubscribableChannel clientInboundChannel,
+                                       MessageChannel clientOutboundChannel,
+                                       SubscribableChannel brokerChannel,
+                                       Collection<String> destinationPrefixes,
+                                       int shardCount) {
+        super(clientInboundChannel, clientOutboundChannel, brokerChannel, destinationPrefixes);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    @Override
+    protected void stopInternal() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected void handleMessageInternal(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType messageType = SimpMessageHeaderAccessor.getMessageType(headers);
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+
+        if (SimpMessageType.DISCONNECT.equals(messageType)) {
+            removeSession(sessionId);
+            return;
+        }
+        if (SimpMessageType.UNSUBSCRIBE.equals(messageType)) {
+            String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+            Map<String, String> subscriptions = sessionId != null ? sessions.get(sessionId) : null;
+            String subscribed = subscriptions != null && subscriptionId != null ? subscriptions.remove(subscriptionId) : null;
+            if (subscribed != null) {
+                shardFor(subscribed).execute(shard -> shard.unsubscribe(subscribed, sessionId, subscriptionId));
+            }
+            return;
+        }
+        if (destination == null || !checkDestinationPrefix(destination)) {
+            return;
+        }
+
+        if (SimpMessageType.SUBSCRIBE.equals(messageType)) {
+            String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+            if (sessionId == null || subscriptionId == null) {
+                return;
+            }
+            sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, destination);
+            shardFor(destination).execute(shard -> shard.subscribe(destination, sessionId, subscriptionId));
+        } else if (SimpMessageType.MESSAGE.equals(messageType)) {
+            shardFor(destination).execute(shard -> shard.publish(destination, message));
+        }
+    }
+
+    private void removeSession(String sessionId) {
+        Map<String, String> subscriptions = sessionId != null ? sessions.remove(sessionId) : null;
+        if (subscriptions == null) {
+            return;
+        }
+        subscriptions.forEach((subscriptionId, destination) ->
+                shardFor(destination).execute(shard -> shard.unsubscribe(destination, sessionId, subscriptionId)));
+    }
+
+    private Shard shardFor(String destination) {
+        return shards[Math.floorMod(destination.hashCode(), shards.length)];
+    }
+
+    private interface ShardTask {
+        void run(Shard shard);
+    }
+
+    private final class Shard {
+        private final ExecutorService executor;
+        // Only touched from this shard's worker thread
+        private final Map<String, Map<String, Subscriber>> subscribers = new HashMap<>();
+
+        private Shard(int index) {
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "broker-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private void execute(ShardTask task) {
+            executor.execute(() -> {
+                try {
+                    task.run(this);
+                } catch (Exception e) {
+                    logger.error("Broker shard task failed", e);
+                }
+            });
+        }
+
+        private void subscribe(String destination, String sessionId, String subscriptionId) {
+            subscribers.computeIfAbsent(destination, key -> new LinkedHashMap<>())
+                    .put(sessionId + '\0' + subscriptionId, new Subscriber(sessionId, subscriptionId));
+        }
+
+        private void unsubscribe(String destination, String sessionId, String subscriptionId) {
+            Map<String, Subscriber> destinationSubscribers = subscribers.get(destination);
+            if (destinationSubscribers == null) {
+                return;
+            }
+            destinationSubscribers.remove(sessionId + '\0' + subscriptionId);
+            if (destinationSubscribers.isEmpty()) {
+                subscribers.remove(destination);
+            }
+        }
+
+        private void publish(String destination, Message<?> message) {
+            Map<String, Subscriber> destinationSubscribers = subscribers.get(destination);
+            if (destinationSubscribers == null) {
+                return;
+            }
+
+            // The payload is already encoded and the shared headers are prepared once per
+            // destination; each subscriber only gets its own session and subscription ids
+            Object payload = message.getPayload();
+            SimpMessageHeaderAccessor template = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            template.copyHeadersIfAbsent(message.getHeaders());
+            template.setSessionId(null);
+            template.setSubscriptionId(null);
+            Map<String, Object> sharedHeaders = template.toMap();
+
+            for (Subscriber subscriber : destinationSubscribers.values()) {
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                accessor.copyHeaders(sharedHeaders);
+                accessor.setSessionId(subscriber.sessionId());
+                accessor.setSubscriptionId(subscriber.subscriptionId());
+                accessor.setLeaveMutable(true);
+                Message<?> reply = MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+                try {
+                    getClientOutboundChannelForSession(subscriber.sessionId()).send(reply);
+                } catch (Exception e) {
+                    logger.error("Failed to deliver message to session " + subscriber.sessionId(), e);
+                }
+            }
+        }
+    }
+
+    private record Subscriber(String sessionId, String subscriptionId) {
+    }
+}
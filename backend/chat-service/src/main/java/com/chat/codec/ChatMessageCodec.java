@@ -0,0 +1,173 @@
+package com.chat.codec;
+
+import com.chat.dto.ChatMessageDTO;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Compact binary encoding of {@link ChatMessageDTO}. A message is a version byte, a varint bit
+ * set of the fields present, then the present fields in declaration order: ids as varints,
+ * the timestamp as zigzag epoch millis (UTC), strings as length-prefixed UTF-8 and the type as
+ * its enum ordinal. Sub-millisecond digits of the timestamp follow last as a varint of
+ * nanoseconds, so decoders that predate the field still read the rest of the message.
+ * <p>
+ * Timestamps decode to exactly the text they were encoded from. One that is not an ISO local
+ * date-time in its shortest form (as {@code LocalDateTime} prints itself) is carried as text.
+ */
+public final class ChatMessageCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int ID = 1;
+    private static final int CHAT_ROOM_ID = 1 << 1;
+    private static final int SENDER_ID = 1 << 2;
+    private static final int SENDER_NAME = 1 << 3;
+    private static final int CONTENT = 1 << 4;
+    private static final int TIMESTAMP_MILLIS = 1 << 5;
+    private static final int TIMESTAMP_TEXT = 1 << 6;
+    private static final int STATUS = 1 << 7;
+    private static final int TYPE = 1 << 8;
+    private static final int TIMESTAMP_NANOS = 1 << 9;
+
+    private static final ChatMessageDTO.MessageType[] TYPES = ChatMessageDTO.MessageType.values();
+
+    private ChatMessageCodec() {
+    }
+
+    public static byte[] encode(ChatMessageDTO message) {
+        CompactOutput out = new CompactOutput(64 + length(message.getContent()));
+        write(message, out);
+        return out.toByteArray();
+    }
+
+    public static ChatMessageDTO decode(byte[] bytes) {
+        return read(new CompactInput(bytes));
+    }
+
+    public static void write(ChatMessageDTO message, CompactOutput out) {
+        LocalDateTime timestamp = parseTimestamp(message.getTimestamp());
+        int nanosOfMilli = timestamp != null ? timestamp.getNano() % 1_000_000 : 0;
+
+        int fields = 0;
+        fields |= message.getId() != null ? ID : 0;
+        fields |= message.getChatRoomId() != null ? CHAT_ROOM_ID : 0;
+        fields |= message.getSenderId() != null ? SENDER_ID : 0;
+        fields |= message.getSenderName() != null ? SENDER_NAME : 0;
+        fields |= message.getContent() != null ? CONTENT : 0;
+        if (timestamp != null) {
+            fields |= TIMESTAMP_MILLIS;
+            fields |= nanosOfMilli != 0 ? TIMESTAMP_NANOS : 0;
+        } else if (message.getTimestamp() != null) {
+            fields |= TIMESTAMP_TEXT;
+        }
+        fields |= message.getStatus() != null ? STATUS : 0;
+        fields |= message.getType() != null ? TYPE : 0;
+
+        out.writeByte(VERSION);
+        out.writeVarLong(fields);
+        if ((fields & ID) != 0) {
+            out.writeVarLong(message.getId());
+        }
+        if ((fields & CHAT_ROOM_ID) != 0) {
+            out.writeVarLong(message.getChatRoomId());
+        }
+        if ((fields & SENDER_ID) != 0) {
+            out.writeVarLong(message.getSenderId());
+        }
+        if ((fields & SENDER_NAME) != 0) {
+            out.writeString(message.getSenderName());
+        }
+        if ((fields & CONTENT) != 0) {
+            out.writeString(message.getContent());
+        }
+        if ((fields & TIMESTAMP_MILLIS) != 0) {
+            out.writeZigZagLong(timestamp.toInstant(ZoneOffset.UTC).toEpochMilli());
+        } else if ((fields & TIMESTAMP_TEXT) != 0) {
+            out.writeString(message.getTimestamp());
+        }
+        if ((fields & STATUS) != 0) {
+            out.writeString(message.getStatus());
+        }
+        if ((fields & TYPE) != 0) {
+            out.writeVarLong(message.getType().ordinal());
+        }
+        if ((fields & TIMESTAMP_NANOS) != 0) {
+            out.writeVarLong(nanosOfMilli);
+        }
+    }
+
+    public static ChatMessageDTO read(CompactInput in) {
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported compact message version " + version);
+        }
+        long fields = in.readVarLong();
+
+        ChatMessageDTO message = new ChatMessageDTO();
+        if ((fields & ID) != 0) {
+            message.setId(in.readVarLong());
+        }
+        if ((fields & CHAT_ROOM_ID) != 0) {
+            message.setChatRoomId(in.readVarLong());
+        }
+        if ((fields & SENDER_ID) != 0) {
+            message.setSenderId(in.readVarLong());
+        }
+        if ((fields & SENDER_NAME) != 0) {
+            message.setSenderName(in.readString());
+        }
+        if ((fields & CONTENT) != 0) {
+            message.setContent(in.readString());
+        }
+        long timestampMillis = 0;
+        if ((fields & TIMESTAMP_MILLIS) != 0) {
+            timestampMillis = in.readZigZagLong();
+        } else if ((fields & TIMESTAMP_TEXT) != 0) {
+            message.setTimestamp(in.readString());
+        }
+        if ((fields & STATUS) != 0) {
+            message.setStatus(in.readString());
+        }
+        if ((fields & TYPE) != 0) {
+            long ordinal = in.readVarLong();
+            if (ordinal < 0 || ordinal >= TYPES.length) {
+                throw new IllegalArgumentException("Unknown message type ordinal " + ordinal);
+            }
+            message.setType(TYPES[(int) ordinal]);
+        }
+        if ((fields & TIMESTAMP_MILLIS) != 0) {
+            long nanosOfMilli = (fields & TIMESTAMP_NANOS) != 0 ? in.readVarLong() : 0;
+            if (nanosOfMilli >= 1_000_000) {
+                throw new IllegalArgumentException("Invalid sub-millisecond timestamp part " + nanosOfMilli);
+            }
+            message.setTimestamp(formatTimestamp(timestampMillis, (int) nanosOfMilli));
+        }
+        return message;
+    }
+
+    /** Returns the timestamp as a date-time if it can be restored as the same text, or null. */
+    private static LocalDateTime parseTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        try {
+            LocalDateTime parsed = LocalDateTime.parse(timestamp, DateTimeFormatter.ISO_DATE_TIME);
+            return parsed.format(DateTimeFormatter.ISO_DATE_TIME).equals(timestamp) ? parsed : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String formatTimestamp(long epochMillis, int nanosOfMilli) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000),
+                (int) Math.floorMod(epochMillis, 1000) * 1_000_000 + nanosOfMilli, ZoneOffset.UTC)
+                .format(DateTimeFormatter.ISO_DATE_TIME);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
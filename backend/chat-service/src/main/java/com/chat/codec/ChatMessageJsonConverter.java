@@ -0,0 +1,61 @@
+package com.chat.codec;
+
+import com.chat.dto.ChatMessageDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.DefaultContentTypeResolver;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.SmartMessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * JSON converter for {@link ChatMessageDTO} that also attaches a {@link CompactPayload} for the
+ * same message, so sessions using the compact encoding get it from the DTO rather than from
+ * the serialized JSON.
+ */
+public class ChatMessageJsonConverter implements SmartMessageConverter {
+
+    private final MappingJackson2MessageConverter json;
+
+    public ChatMessageJsonConverter(ObjectMapper objectMapper) {
+        json = new MappingJackson2MessageConverter() {
+            @Override
+            protected boolean supports(Class<?> clazz) {
+                return ChatMessageDTO.class == clazz;
+            }
+        };
+        json.setObjectMapper(objectMapper);
+        DefaultContentTypeResolver resolver = new DefaultContentTypeResolver();
+        resolver.setDefaultMimeType(MimeTypeUtils.APPLICATION_JSON);
+        json.setContentTypeResolver(resolver);
+    }
+
+    @Override
+    public Object fromMessage(Message<?> message, Class<?> targetClass) {
+        return json.fromMessage(message, targetClass);
+    }
+
+    @Override
+    public Object fromMessage(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        return json.fromMessage(message, targetClass, conversionHint);
+    }
+
+    @Override
+    public Message<?> toMessage(Object payload, MessageHeaders headers) {
+        return toMessage(payload, headers, null);
+    }
+
+    @Override
+    public Message<?> toMessage(Object payload, MessageHeaders headers, Object conversionHint) {
+        Message<?> message = json.toMessage(payload, headers, conversionHint);
+        if (message == null) {
+            return null;
+        }
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        accessor.setHeader(CompactPayload.HEADER, new CompactPayload((ChatMessageDTO) payload));
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+}
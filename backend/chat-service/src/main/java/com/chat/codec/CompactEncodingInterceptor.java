@@ -0,0 +1,126 @@
+package com.chat.codec;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Swaps the JSON payload of chat messages on the client outbound channel for their compact
+ * encoding, for sessions that asked for it with an {@code accept-content-type} header on
+ * CONNECT. The compact bytes come from the {@link CompactPayload} header that
+ * {@link ChatMessageJsonConverter} attaches when the message is sent; messages without one
+ * go out as JSON.
+ * <p>
+ * Spring writes STOMP frames as text WebSocket messages unless their content-type is
+ * {@code application/octet-stream}, which would mangle the compact bytes, so this also
+ * decorates the WebSocket handler to send every frame of a compact session as a binary message.
+ * SockJS transports are text-only; sessions on them keep receiving JSON.
+ */
+@Component
+public class CompactEncodingInterceptor implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private static final String ACCEPT_HEADER = "accept-content-type";
+    private static final String MESSAGES_PREFIX = "/topic/messages/";
+
+    // WebSocket sessions that can carry binary messages; the STOMP session id is the same
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+    private final Set<String> compactSessions = ConcurrentHashMap.newKeySet();
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String accept = accessor.getFirstNativeHeader(ACCEPT_HEADER);
+        if (accessor.getSessionId() != null && accept != null
+                && CompactMessageConverter.COMPACT.equalsTypeAndSubtype(MimeType.valueOf(accept))
+                && binarySessions.contains(accessor.getSessionId())) {
+            compactSessions.add(accessor.getSessionId());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        compactSessions.remove(event.getSessionId());
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                if (session instanceof SockJsSession) {
+                    super.afterConnectionEstablished(session);
+                    return;
+                }
+                binarySessions.add(session.getId());
+                super.afterConnectionEstablished(new BinaryFrameSession(session));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                binarySessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (compactSessions.isEmpty()) {
+            return message;
+        }
+        MessageHeaders headers = message.getHeaders();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (sessionId == null || destination == null || !destination.startsWith(MESSAGES_PREFIX)
+                || !compactSessions.contains(sessionId)
+                || !(headers.get(CompactPayload.HEADER) instanceof CompactPayload compact)) {
+            return message;
+        }
+
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        accessor.setContentType(CompactMessageConverter.COMPACT);
+        return MessageBuilder.createMessage(compact.bytes(), accessor.getMessageHeaders());
+    }
+
+    /** Sends the encoded STOMP frames of compact sessions as binary WebSocket messages. */
+    private final class BinaryFrameSession extends WebSocketSessionDecorator {
+
+        private BinaryFrameSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (message instanceof TextMessage text && compactSessions.contains(getId())) {
+                // TextMessage keeps the frame bytes it was created from, before any UTF-8 decoding
+                super.sendMessage(new BinaryMessage(text.asBytes()));
+                return;
+            }
+            super.sendMessage(message);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.chat.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader over a byte array written by {@link CompactOutput}; not thread-safe.
+ */
+public final class CompactInput {
+
+    private final byte[] buffer;
+    private int position;
+
+    public CompactInput(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    public int readByte() {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    public long readZigZagLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public String readString() {
+        long length = readVarLong();
+        if (length < 0 || length > buffer.length - position) {
+            throw new IllegalArgumentException("String length " + length + " exceeds remaining input");
+        }
+        String value = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+        position += (int) length;
+        return value;
+    }
+
+    private void require(int count) {
+        if (position + count > buffer.length) {
+            throw new IllegalArgumentException("Unexpected end of compact input");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.chat.codec;
+
+import com.chat.dto.ChatMessageDTO;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.util.MimeType;
+
+/**
+ * Converts {@link ChatMessageDTO} payloads to and from {@link ChatMessageCodec}. Only used for
+ * frames whose content-type is {@link #COMPACT}; JSON stays the default.
+ */
+public class CompactMessageConverter extends AbstractMessageConverter {
+
+    public static final MimeType COMPACT = MimeType.valueOf("application/x-chat-compact");
+
+    public CompactMessageConverter() {
+        super(COMPACT);
+        setStrictContentTypeMatch(true);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ChatMessageDTO.class == clazz;
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        if (!(message.getPayload() instanceof byte[] bytes)) {
+            return null;
+        }
+        return ChatMessageCodec.decode(bytes);
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        return ChatMessageCodec.encode((ChatMessageDTO) payload);
+    }
+}
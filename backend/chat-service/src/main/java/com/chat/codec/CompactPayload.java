@@ -0,0 +1,31 @@
+package com.chat.codec;
+
+import com.chat.dto.ChatMessageDTO;
+
+/**
+ * Compact encoding of an outbound chat message, attached as the {@link #HEADER} header by
+ * {@link ChatMessageJsonConverter} next to the JSON payload. Brokers copy the header onto the
+ * message for every subscriber, so the message is encoded at most once, by the first subscriber
+ * that asked for the compact encoding.
+ */
+public final class CompactPayload {
+
+    public static final String HEADER = "chatCompactPayload";
+
+    private final ChatMessageDTO message;
+    private volatile byte[] encoded;
+
+    public CompactPayload(ChatMessageDTO message) {
+        this.message = message;
+    }
+
+    public byte[] bytes() {
+        byte[] bytes = encoded;
+        if (bytes == null) {
+            // Concurrent first calls may both encode; the results are identical
+            bytes = ChatMessageCodec.encode(message);
+            encoded = bytes;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,89 @@
+package com.chat.config;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the number of threads using the database at once. With message handlers on virtual
+ * threads there is no thread pool left to cap concurrency, so thousands of handlers could pile
+ * up inside the connection pool; here callers beyond {@code maxConcurrency} park on a fair
+ * semaphore, and once {@code maxWaiting} are parked further callers fail immediately.
+ * <p>
+ * Permits are re-entrant per thread: a thread that already holds one (for example a nested
+ * connection inside a transaction) never waits on itself. {@link #release()} must be called on
+ * the acquiring thread.
+ */
+public class DatabaseConcurrencyLimiter {
+
+    private final int maxConcurrency;
+    private final int maxWaiting;
+    private final long acquireTimeoutNanos;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final ThreadLocal<int[]> heldByThread = ThreadLocal.withInitial(() -> new int[1]);
+
+    public DatabaseConcurrencyLimiter(int maxConcurrency, int maxWaiting, long acquireTimeoutMs) {
+        this.maxConcurrency = maxConcurrency;
+        this.maxWaiting = maxWaiting;
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    public void acquire() throws SQLException {
+        int[] held = heldByThread.get();
+        if (held[0] > 0) {
+            held[0]++;
+            return;
+        }
+        if (!permits.tryAcquire()) {
+            if (waiting.incrementAndGet() > maxWaiting) {
+                waiting.decrementAndGet();
+                rejected.increment();
+                throw new SQLTransientConnectionException(
+                        "Database concurrency limit reached: " + maxWaiting + " callers already waiting");
+            }
+            try {
+                if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    rejected.increment();
+                    throw new SQLTransientConnectionException("Timed out after "
+                            + TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos) + " ms waiting for a database permit");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted while waiting for a database permit", e);
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+        held[0] = 1;
+    }
+
+    public void release() {
+        int[] held = heldByThread.get();
+        if (held[0] == 0) {
+            heldByThread.remove();
+            return;
+        }
+        if (--held[0] == 0) {
+            heldByThread.remove();
+            permits.release();
+        }
+    }
+
+    public int activeCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int waitingCount() {
+        return waiting.get();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,38 @@
+package com.chat.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DatabaseLimiterConfig {
+
+    @Bean
+    public static DatabaseConcurrencyLimiter databaseConcurrencyLimiter(
+            @Value("${chat.db.limiter.max-concurrency:10}") int maxConcurrency,
+            @Value("${chat.db.limiter.max-waiting:10000}") int maxWaiting,
+            @Value("${chat.db.limiter.acquire-timeout-ms:10000}") long acquireTimeoutMs) {
+        return new DatabaseConcurrencyLimiter(maxConcurrency, maxWaiting, acquireTimeoutMs);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "chat.db.limiter.enabled", havingValue = "true", matchIfMissing = true)
+    public static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor(
+            ObjectProvider<DatabaseConcurrencyLimiter> limiter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Wraps the pool itself, so the limiter sits in front of every JPA and JDBC caller
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    return new ConcurrencyLimitedDataSource(dataSource, limiter.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package com.chat.config;
+
+import com.chat.model.TimeOrderedIdentifierGenerator;
+import com.chat.util.TimeOrderedIdGenerator;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    public TimeOrderedIdGenerator idGenerator(WorkerIdLease workerIdLease) {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(workerIdLease.getWorkerId());
+        // Hibernate instantiates id generators itself, outside of the application context
+        TimeOrderedIdentifierGenerator.install(generator);
+        return generator;
+    }
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor entityManagerFactoryDependsOnIdGenerator() {
+        return new EntityManagerFactoryDependsOnPostProcessor("idGenerator");
+    }
+}
@@ -1,5 +1,11 @@
 package com.chat.config;
 
+import com.chat.codec.ClusterMessageSerializer;
+import com.chat.dto.ClusterMessage;
+import com.chat.service.MessageSubscriber;
+import com.chat.service.ReceiptService;
+import com.chat.service.RoomMembershipIndex;
+import com.chat.service.RoomSummaryService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -25,11 +31,71 @@ public class RedisConfig {
         return template;
     }
 
+    @Bean
+    public ClusterMessageSerializer clusterMessageSerializer() {
+        return new ClusterMessageSerializer();
+    }
+
+    @Bean
+    public RedisTemplate<String, ClusterMessage> clusterMessageTemplate(
+            RedisConnectionFactory connectionFactory,
+            ClusterMessageSerializer clusterMessageSerializer) {
+        RedisTemplate<String, ClusterMessage> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(clusterMessageSerializer);
+        return template;
+    }
+
     @Bean
     public ChannelTopic chatTopic() {
         return new ChannelTopic("chat-messages");
     }
 
+    @Bean
+    public ChannelTopic membershipTopic() {
+        return new ChannelTopic("room-membership-invalidations");
+    }
+
+    @Bean
+    public ChannelTopic receiptTopic() {
+        return new ChannelTopic("read-receipts");
+    }
+
+    @Bean
+    public ChannelTopic roomSummaryTopic() {
+        return new ChannelTopic("room-summary-invalidations");
+    }
+
+    @Bean
+    public MessageListenerAdapter chatMessageListener(
+            MessageSubscriber messageSubscriber,
+            ClusterMessageSerializer clusterMessageSerializer) {
+        MessageListenerAdapter adapter = new MessageListenerAdapter(messageSubscriber, "onMessage");
+        adapter.setSerializer(clusterMessageSerializer);
+        return adapter;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            MessageListenerAdapter chatMessageListener,
+            ChannelTopic chatTopic,
+            RoomMembershipIndex roomMembershipIndex,
+            ChannelTopic membershipTopic,
+            ReceiptService receiptService,
+            ChannelTopic receiptTopic,
+            RoomSummaryService roomSummaryService,
+            ChannelTopic roomSummaryTopic) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(chatMessageListener, chatTopic);
+        container.addMessageListener(roomMembershipIndex, membershipTopic);
+        container.addMessageListener(receiptService, receiptTopic);
+        container.addMessageListener(roomSummaryService, roomSummaryTopic);
+        return container;
+    }
+
     @Bean
     public ObjectMapper objectMapper() {
         return new ObjectMapper();
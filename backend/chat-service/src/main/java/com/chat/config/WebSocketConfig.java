@@ -1,18 +1,66 @@
 package com.chat.config;
 
+import com.chat.broker.ShardedBrokerMessageHandler;
+import com.chat.codec.ChatMessageJsonConverter;
+import com.chat.codec.CompactEncodingInterceptor;
+import com.chat.codec.CompactMessageConverter;
+import com.chat.security.StompAuthenticationInterceptor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.SimpleBrokerRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final CompactEncodingInterceptor compactEncodingInterceptor;
+    private final StompAuthenticationInterceptor stompAuthenticationInterceptor;
+    private final ObjectMapper objectMapper;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.broker.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${chat.execution.virtual.max-concurrency:10000}")
+    private int virtualMaxConcurrency;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        SimpleBrokerRegistration broker;
+        if ("sharded".equals(brokerMode)) {
+            // Room topics are handled by ShardedBrokerMessageHandler
+            broker = config.enableSimpleBroker("/queue");
+        } else {
+            broker = config.enableSimpleBroker("/topic", "/queue");
+        }
+        // Heartbeats let the broker close dead connections, which ends their presence sessions
+        broker.setHeartbeatValue(new long[] {heartbeatMs, heartbeatMs})
+                .setTaskScheduler(brokerHeartbeatScheduler());
         config.setApplicationDestinationPrefixes("/app");
     }
 
@@ -22,4 +70,66 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // Only matches frames with the compact content-type; the default converters still follow
+        messageConverters.add(new CompactMessageConverter());
+        // Chat messages as JSON, carrying their compact encoding for CompactEncodingInterceptor
+        messageConverters.add(new ChatMessageJsonConverter(objectMapper));
+        return true;
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthenticationInterceptor);
+        if (virtualThreads) {
+            registration.taskExecutor(virtualThreadExecutor("ws-inbound-vt-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(compactEncodingInterceptor);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(compactEncodingInterceptor);
+    }
+
+    /**
+     * Gives every inbound frame its own virtual thread, up to {@code max-concurrency} in flight,
+     * so handlers blocked on JDBC or Redis park instead of occupying one of a few platform
+     * threads. Frames beyond the limit queue as before and idle threads are discarded quickly.
+     */
+    private ThreadPoolTaskExecutor virtualThreadExecutor(String threadNamePrefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory());
+        executor.setCorePoolSize(virtualMaxConcurrency);
+        executor.setMaxPoolSize(virtualMaxConcurrency);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(1);
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler brokerHeartbeatScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("ws-heartbeat-");
+        return scheduler;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "chat.broker.mode", havingValue = "sharded")
+    public ShardedBrokerMessageHandler shardedBrokerMessageHandler(
+            @Qualifier("clientInboundChannel") SubscribableChannel clientInboundChannel,
+            @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+            @Qualifier("brokerChannel") SubscribableChannel brokerChannel,
+            @Value("${chat.broker.shards:0}") int shards) {
+        int shardCount = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+        return new ShardedBrokerMessageHandler(
+                clientInboundChannel, clientOutboundChannel, brokerChannel, List.of("/topic"), shardCount);
+    }
 }
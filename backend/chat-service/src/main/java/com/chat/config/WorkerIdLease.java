@@ -0,0 +1,121 @@
+package com.chat.config;
+
+import com.chat.util.TimeOrderedIdGenerator;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker id of this node in {@link TimeOrderedIdGenerator} ids. Unless {@code chat.id.worker-id}
+ * pins it, the node leases a free id as the Redis key {@code chat:id-worker:{id}}, holding its
+ * node id, and renews the lease every third of its TTL until shutdown. A lease lost while Redis
+ * was unreachable is taken back if still free; if another node claimed it meanwhile, both could
+ * generate the same ids, which is logged as an error.
+ */
+@Component
+@Slf4j
+public class WorkerIdLease {
+
+    private static final String KEY_PREFIX = "chat:id-worker:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final String nodeId;
+    private final Duration ttl;
+    @Getter
+    private final int workerId;
+    private final boolean leased;
+
+    private ScheduledExecutorService renewer;
+
+    public WorkerIdLease(
+            StringRedisTemplate stringRedisTemplate,
+            NodeIdentity nodeIdentity,
+            @Value("${chat.id.worker-id:-1}") int configuredWorkerId,
+            @Value("${chat.id.lease-ttl-ms:30000}") long ttlMs) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.nodeId = nodeIdentity.getNodeId();
+        this.ttl = Duration.ofMillis(ttlMs);
+        if (configuredWorkerId >= 0) {
+            this.workerId = configuredWorkerId;
+            this.leased = false;
+        } else {
+            this.workerId = acquire();
+            this.leased = true;
+        }
+        log.info("Id worker id: {}{}", workerId, leased ? " (leased)" : "");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!leased) {
+            return;
+        }
+        renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "worker-id-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodMs = ttl.toMillis() / 3;
+        renewer.scheduleWithFixedDelay(this::renew, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Before lifecycle beans stop, while the Redis connection factory still accepts commands
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        if (!leased) {
+            return;
+        }
+        renewer.shutdownNow();
+        try {
+            if (nodeId.equals(stringRedisTemplate.opsForValue().get(KEY_PREFIX + workerId))) {
+                stringRedisTemplate.delete(KEY_PREFIX + workerId);
+            }
+        } catch (Exception e) {
+            log.warn("Error releasing id worker id {}, it frees up after {} ms", workerId, ttl.toMillis(), e);
+        }
+    }
+
+    private int acquire() {
+        // Random start so nodes booting together rarely contend for the same id
+        int start = ThreadLocalRandom.current().nextInt(TimeOrderedIdGenerator.MAX_WORKER_ID + 1);
+        for (int i = 0; i <= TimeOrderedIdGenerator.MAX_WORKER_ID; i++) {
+            int candidate = (start + i) % (TimeOrderedIdGenerator.MAX_WORKER_ID + 1);
+            if (Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + candidate, nodeId, ttl))) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("All " + (TimeOrderedIdGenerator.MAX_WORKER_ID + 1)
+                + " id worker ids are leased; set chat.id.worker-id or stop a node");
+    }
+
+    private void renew() {
+        String key = KEY_PREFIX + workerId;
+        try {
+            String holder = stringRedisTemplate.opsForValue().get(key);
+            if (nodeId.equals(holder)) {
+                stringRedisTemplate.expire(key, ttl);
+            } else if (holder == null) {
+                if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key, nodeId, ttl))) {
+                    log.error("Id worker id {} was claimed by another node while its lease lapsed", workerId);
+                } else {
+                    log.warn("Id worker id {} lease had lapsed and was renewed", workerId);
+                }
+            } else {
+                log.error("Id worker id {} is also leased by node {}; ids may collide", workerId, holder);
+            }
+        } catch (Exception e) {
+            log.warn("Error renewing id worker id {} lease", workerId, e);
+        }
+    }
+}
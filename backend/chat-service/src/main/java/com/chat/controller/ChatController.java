@@ -1,15 +1,20 @@
 package com.chat.controller;
 
 import com.chat.dto.CreateChatRoomRequest;
+import com.chat.dto.MessagePage;
+import com.chat.dto.MessageSearchPage;
+import com.chat.dto.ReceiptUpdateDTO;
+import com.chat.dto.RoomSummaryPage;
 import com.chat.model.ChatRoom;
-import com.chat.model.Message;
 import com.chat.model.Participant;
 import com.chat.service.ChatService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -31,14 +36,62 @@ public class ChatController {
         return ResponseEntity.ok(chatService.getUserChatRooms(userId));
     }
 
+    @GetMapping("/rooms/summary")
+    public ResponseEntity<RoomSummaryPage> getUserRoomSummaries(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(chatService.getUserRoomSummaries(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/rooms/unread")
+    public ResponseEntity<Map<Long, Long>> getUnreadCounts(@RequestHeader("X-User-Id") Long userId) {
+        return ResponseEntity.ok(chatService.getUnreadCounts(userId));
+    }
+
     @GetMapping("/rooms/{roomId}")
     public ResponseEntity<ChatRoom> getRoom(@PathVariable Long roomId) {
         return ResponseEntity.ok(chatService.getChatRoom(roomId));
     }
 
+    @GetMapping("/messages/search")
+    public ResponseEntity<MessageSearchPage> searchMessages(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Long roomId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (roomId != null && !chatService.isUserInRoom(userId, roomId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.ok(chatService.searchMessages(userId, query, roomId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     @GetMapping("/messages/{roomId}")
-    public ResponseEntity<List<Message>> getRoomMessages(@PathVariable Long roomId) {
-        return ResponseEntity.ok(chatService.getRoomMessages(roomId));
+    public ResponseEntity<MessagePage> getRoomMessages(
+            @PathVariable Long roomId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (before != null && after != null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(chatService.getRoomMessages(roomId, before, after, limit));
+    }
+
+    @GetMapping("/rooms/{roomId}/receipts")
+    public ResponseEntity<List<ReceiptUpdateDTO.Receipt>> getRoomReceipts(@PathVariable Long roomId) {
+        return ResponseEntity.ok(chatService.getRoomReceipts(roomId));
     }
 
     @GetMapping("/rooms/{roomId}/participants")
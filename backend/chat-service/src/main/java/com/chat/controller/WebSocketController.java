@@ -1,9 +1,18 @@
 package com.chat.controller;
 
 import com.chat.dto.ChatMessageDTO;
+import com.chat.dto.ReceiptAckDTO;
 import com.chat.model.Message;
+import com.chat.security.ChatPrincipal;
+import com.chat.security.StompAuthenticationInterceptor;
 import com.chat.service.ChatService;
+import com.chat.service.MessagePipelineMetrics;
 import com.chat.service.MessagePublisher;
+import com.chat.service.MessageSearchService;
+import com.chat.service.ReceiptService;
+import com.chat.service.RecentMessageCache;
+import com.chat.service.TypingIndicatorService;
+import com.chat.service.UnreadCounterService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
@@ -12,8 +21,9 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
-import java.time.LocalDateTime;
+import java.security.Principal;
 import java.time.format.DateTimeFormatter;
+import java.util.Objects;
 
 @Controller
 @RequiredArgsConstructor
@@ -23,44 +33,113 @@ public class WebSocketController {
     private final SimpMessagingTemplate messagingTemplate;
     private final ChatService chatService;
     private final MessagePublisher messagePublisher;
+    private final RecentMessageCache recentMessageCache;
+    private final TypingIndicatorService typingIndicatorService;
+    private final MessagePipelineMetrics pipelineMetrics;
+    private final ReceiptService receiptService;
+    private final UnreadCounterService unreadCounterService;
+    private final MessageSearchService messageSearchService;
 
     @MessageMapping("/sendMessage")
-    public void sendMessage(@Payload ChatMessageDTO chatMessage) {
+    public void sendMessage(@Payload ChatMessageDTO chatMessage, Principal principal) {
         log.debug("Received message: {}", chatMessage);
 
-        try {
-            // Save message to database
-            Message message = new Message();
-            message.setChatRoomId(chatMessage.getChatRoomId());
-            message.setSenderId(chatMessage.getSenderId());
-            message.setContent(chatMessage.getContent());
-            message.setStatus("sent");
-            
-            message = chatService.saveMessage(message);
-
-            // Prepare response
-            chatMessage.setId(message.getId());
-            chatMessage.setTimestamp(message.getTimestamp().format(DateTimeFormatter.ISO_DATE_TIME));
-            chatMessage.setStatus(message.getStatus());
-            chatMessage.setType(ChatMessageDTO.MessageType.CHAT);
-
-            // Publish to Redis for distribution
-            messagePublisher.publish(chatMessage);
-
-            // Send to room subscribers
-            messagingTemplate.convertAndSend(
-                    "/topic/messages/" + chatMessage.getChatRoomId(),
-                    chatMessage
-            );
+        // The sender is the session's authenticated user, never the id claimed in the payload
+        ChatPrincipal user = StompAuthenticationInterceptor.currentUser(principal);
+        if (user == null || !matchesUser(chatMessage.getSenderId(), user)) {
+            log.warn("Rejected message claiming sender {} from session user {}",
+                    chatMessage.getSenderId(), user != null ? user.userId() : null);
+            pipelineMetrics.recordRejected();
+            return;
+        }
+        chatMessage.setSenderId(user.userId());
+        chatMessage.setSenderName(user.username());
+
+        if (!chatService.isUserInRoom(user.userId(), chatMessage.getChatRoomId())) {
+            log.warn("Rejected message from user {} to room {}: not a participant",
+                    user.userId(), chatMessage.getChatRoomId());
+            pipelineMetrics.recordRejected();
+            return;
+        }
+
+        // Save message to database
+        Message message = new Message();
+        message.setChatRoomId(chatMessage.getChatRoomId());
+        message.setSenderId(chatMessage.getSenderId());
+        message.setContent(chatMessage.getContent());
+        message.setStatus("sent");
 
+        long persistStart = System.nanoTime();
+        try {
+            // With write-behind enabled this completes once the message's batch is committed
+            chatService.persistMessage(message)
+                    .whenComplete((saved, e) -> pipelineMetrics.recordPersist(persistStart, e == null))
+                    .thenAccept(saved -> deliver(chatMessage, saved))
+                    .exceptionally(e -> {
+                        log.error("Error processing message", e);
+                        return null;
+                    });
         } catch (Exception e) {
+            pipelineMetrics.recordPersist(persistStart, false);
             log.error("Error processing message", e);
         }
     }
 
+    private void deliver(ChatMessageDTO chatMessage, Message message) {
+        // Prepare response
+        chatMessage.setId(message.getId());
+        chatMessage.setTimestamp(message.getTimestamp().format(DateTimeFormatter.ISO_DATE_TIME));
+        chatMessage.setStatus(message.getStatus());
+        chatMessage.setType(ChatMessageDTO.MessageType.CHAT);
+
+        recentMessageCache.append(chatMessage);
+        receiptService.onMessageDelivered(chatMessage.getChatRoomId(), chatMessage.getId());
+
+        // Publish to Redis for distribution
+        messagePublisher.publish(chatMessage);
+
+        // Send to room subscribers
+        long dispatchStart = System.nanoTime();
+        messagingTemplate.convertAndSend(
+                "/topic/messages/" + chatMessage.getChatRoomId(),
+                chatMessage
+        );
+        pipelineMetrics.recordLocalDispatch(dispatchStart);
+
+        unreadCounterService.onMessage(chatMessage.getChatRoomId(), chatMessage.getSenderId());
+        messageSearchService.onMessage(chatMessage);
+    }
+
     @MessageMapping("/typing/{roomId}")
-    public void handleTyping(@DestinationVariable Long roomId, @Payload ChatMessageDTO typingMessage) {
-        typingMessage.setType(ChatMessageDTO.MessageType.TYPING);
-        messagingTemplate.convertAndSend("/topic/typing/" + roomId, typingMessage);
+    public void handleTyping(@DestinationVariable Long roomId, @Payload ChatMessageDTO typingMessage,
+                             Principal principal) {
+        ChatPrincipal user = StompAuthenticationInterceptor.currentUser(principal);
+        if (user == null || !matchesUser(typingMessage.getSenderId(), user)
+                || !chatService.isUserInRoom(user.userId(), roomId)) {
+            return;
+        }
+        typingIndicatorService.onTyping(roomId, user.userId(), user.username());
+    }
+
+    @MessageMapping("/receipts/{roomId}")
+    public void handleReceipt(@DestinationVariable Long roomId, @Payload ReceiptAckDTO ack, Principal principal) {
+        if (ack.getMessageId() == null || ack.getMessageId() <= 0
+                || !("delivered".equals(ack.getStatus()) || "read".equals(ack.getStatus()))) {
+            return;
+        }
+        ChatPrincipal user = StompAuthenticationInterceptor.currentUser(principal);
+        if (user == null || !matchesUser(ack.getUserId(), user) || !chatService.isUserInRoom(user.userId(), roomId)) {
+            return;
+        }
+        boolean read = "read".equals(ack.getStatus());
+        // Stale or partial read acks leave the unread counter alone
+        if (receiptService.onAck(roomId, user.userId(), ack.getMessageId(), read)) {
+            unreadCounterService.markRead(roomId, user.userId());
+        }
+    }
+
+    /** A payload may omit the user id; if it names one, it has to be the session's user. */
+    private static boolean matchesUser(Long claimedUserId, ChatPrincipal user) {
+        return claimedUserId == null || Objects.equals(claimedUserId, user.userId());
     }
 }
@@ -0,0 +1,13 @@
+package com.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterMessage {
+    private String originNodeId;
+    private ChatMessageDTO message;
+}
@@ -0,0 +1,16 @@
+package com.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessagePage {
+    private List<ChatMessageDTO> messages; // oldest first
+    private Long nextCursor;
+    private boolean hasMore;
+}
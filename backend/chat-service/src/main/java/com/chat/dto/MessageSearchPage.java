@@ -0,0 +1,16 @@
+package com.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchPage {
+    private List<ChatMessageDTO> messages; // best match first
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,14 @@
+package com.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptAckDTO {
+    private Long userId;
+    private Long messageId; // everything up to and including this message
+    private String status; // delivered, read
+}
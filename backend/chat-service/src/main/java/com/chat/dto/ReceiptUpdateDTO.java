@@ -0,0 +1,24 @@
+package com.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptUpdateDTO {
+    private Long chatRoomId;
+    private List<Receipt> receipts;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Receipt {
+        private Long userId;
+        private Long deliveredUpTo;
+        private Long readUpTo;
+    }
+}
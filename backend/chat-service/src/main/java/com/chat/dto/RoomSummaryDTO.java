@@ -0,0 +1,20 @@
+package com.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomSummaryDTO {
+    private Long chatRoomId;
+    private String name;
+    private String type;
+    private int participantCount;
+    private Long lastMessageId;
+    private Long lastSenderId;
+    private String lastMessagePreview;
+    private String lastActivityAt;
+    private long unreadCount;
+}
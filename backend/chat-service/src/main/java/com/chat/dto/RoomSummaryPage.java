@@ -0,0 +1,16 @@
+package com.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomSummaryPage {
+    private List<RoomSummaryDTO> rooms; // most recently active first
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,24 @@
+package com.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypingUpdateDTO {
+    private Long chatRoomId;
+    private List<TypingEvent> events;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TypingEvent {
+        private Long userId;
+        private String senderName;
+        private boolean typing;
+    }
+}
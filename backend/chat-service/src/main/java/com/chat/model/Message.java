@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Message {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @Column(nullable = false)
@@ -29,5 +29,5 @@ public class Message {
     private LocalDateTime timestamp = LocalDateTime.now();
 
     @Column(length = 20)
-    private String status = "sent"; // sent, delivered, read
+    private String status = "sent"; // stored as sent; delivered/read are derived from read_receipts
 }
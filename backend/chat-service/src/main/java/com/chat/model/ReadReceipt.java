@@ -0,0 +1,44 @@
+package com.chat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Per-user watermarks for a room: every message with an id up to {@code deliveredMessageId}
+ * has been delivered to the user, and up to {@code readMessageId} has been read.
+ */
+@Entity
+@Table(name = "read_receipts")
+@IdClass(ReadReceipt.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadReceipt {
+    @Id
+    private Long userId;
+
+    @Id
+    private Long chatRoomId;
+
+    @Column(nullable = false)
+    private Long deliveredMessageId = 0L;
+
+    @Column(nullable = false)
+    private Long readMessageId = 0L;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private Long chatRoomId;
+    }
+}
@@ -0,0 +1,38 @@
+package com.chat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Denormalized sidebar row for a chat room, updated in place by the message write path.
+ */
+@Entity
+@Table(name = "room_summary")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomSummary {
+    @Id
+    private Long chatRoomId;
+
+    private String name;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(nullable = false)
+    private Integer participantCount = 0;
+
+    private Long lastMessageId;
+
+    private Long lastSenderId;
+
+    @Column(length = 200)
+    private String lastMessagePreview;
+
+    @Column(nullable = false)
+    private LocalDateTime lastActivityAt;
+}
@@ -0,0 +1,24 @@
+package com.chat.model;
+
+import com.chat.util.TimeOrderedIdGenerator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/** Hibernate side of {@link TimeOrderedId}, drawing from the application's generator. */
+public class TimeOrderedIdentifierGenerator implements IdentifierGenerator {
+
+    private static volatile TimeOrderedIdGenerator generator;
+
+    public static void install(TimeOrderedIdGenerator idGenerator) {
+        generator = idGenerator;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        TimeOrderedIdGenerator current = generator;
+        if (current == null) {
+            throw new IllegalStateException("Time-ordered id generator is not installed");
+        }
+        return current.nextId();
+    }
+}
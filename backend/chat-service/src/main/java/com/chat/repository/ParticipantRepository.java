@@ -2,6 +2,7 @@ package com.chat.repository;
 
 import com.chat.model.Participant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
@@ -9,4 +10,7 @@ import java.util.List;
 public interface ParticipantRepository extends JpaRepository<Participant, Long> {
     List<Participant> findByChatRoomId(Long chatRoomId);
     boolean existsByUserIdAndChatRoomId(Long userId, Long chatRoomId);
+
+    @Query("SELECT p.chatRoomId FROM Participant p WHERE p.userId = ?1")
+    List<Long> findChatRoomIdsByUserId(Long userId);
 }
@@ -0,0 +1,11 @@
+package com.chat.repository;
+
+import com.chat.model.ReadReceipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface ReadReceiptRepository extends JpaRepository<ReadReceipt, ReadReceipt.Key> {
+    List<ReadReceipt> findByChatRoomId(Long chatRoomId);
+}
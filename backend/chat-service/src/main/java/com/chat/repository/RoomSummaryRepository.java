@@ -0,0 +1,22 @@
+package com.chat.repository;
+
+import com.chat.model.RoomSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RoomSummaryRepository extends JpaRepository<RoomSummary, Long> {
+    @Query(value = "SELECT s.* FROM room_summary s JOIN participants p ON p.chat_room_id = s.chat_room_id " +
+                   "WHERE p.user_id = ?1 " +
+                   "ORDER BY s.last_activity_at DESC, s.chat_room_id DESC LIMIT ?2", nativeQuery = true)
+    List<RoomSummary> findLatestByUserId(Long userId, int limit);
+
+    @Query(value = "SELECT s.* FROM room_summary s JOIN participants p ON p.chat_room_id = s.chat_room_id " +
+                   "WHERE p.user_id = ?1 AND (s.last_activity_at < ?2 " +
+                   "OR (s.last_activity_at = ?2 AND s.chat_room_id < ?3)) " +
+                   "ORDER BY s.last_activity_at DESC, s.chat_room_id DESC LIMIT ?4", nativeQuery = true)
+    List<RoomSummary> findByUserIdBefore(Long userId, LocalDateTime lastActivityAt, Long chatRoomId, int limit);
+}
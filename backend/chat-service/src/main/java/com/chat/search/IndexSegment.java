@@ -0,0 +1,231 @@
+package com.chat.search;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Immutable, memory-mapped inverted index segment written by {@link IndexSegmentWriter}.
+ * <pre>
+ * [documents]   per document: messageId(8) roomId(8) length(4), indexed by ordinal
+ * [postings]    per term: a skip entry per block of {@link #BLOCK_SIZE} postings, lastOrdinal(4)
+ *               endOffset(4), when there is more than one block; then varint (ordinal delta,
+ *               term frequency) pairs
+ * [dictionary]  per term, ascending by UTF-8 bytes: termStart(4) termLength(4) docFreq(4)
+ *               postingsOffset(4)
+ * [term bytes]
+ * [footer]      magic(4) version(4) docCount(4) termCount(4) dictionaryOffset(8)
+ *               termBytesOffset(8) totalLength(8) maxMessageId(8)
+ * </pre>
+ * Reads use absolute positions, so one instance is shared by all searching threads.
+ */
+final class IndexSegment {
+
+    static final int MAGIC = 0x43485349; // "CHSI"
+    static final int VERSION = 1;
+    static final int DOC_ENTRY_BYTES = 20;
+    static final int TERM_ENTRY_BYTES = 16;
+    static final int SKIP_ENTRY_BYTES = 8;
+    static final int FOOTER_BYTES = 48;
+    static final int BLOCK_SIZE = 128;
+    static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int docCount;
+    private final int termCount;
+    private final int dictionaryOffset;
+    private final int termBytesOffset;
+    private final long totalLength;
+    private final long maxMessageId;
+
+    private IndexSegment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        int footer = buffer.capacity() - FOOTER_BYTES;
+        if (buffer.getInt(footer) != MAGIC || buffer.getInt(footer + 4) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " index segment: " + path);
+        }
+        this.docCount = buffer.getInt(footer + 8);
+        this.termCount = buffer.getInt(footer + 12);
+        this.dictionaryOffset = (int) buffer.getLong(footer + 16);
+        this.termBytesOffset = (int) buffer.getLong(footer + 24);
+        this.totalLength = buffer.getLong(footer + 32);
+        this.maxMessageId = buffer.getLong(footer + 40);
+        if ((long) dictionaryOffset + (long) termCount * TERM_ENTRY_BYTES != termBytesOffset
+                || termBytesOffset > footer) {
+            throw new IOException("Truncated index segment: " + path);
+        }
+    }
+
+    static IndexSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FOOTER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid index segment size " + size + ": " + path);
+            }
+            return new IndexSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    int termCount() {
+        return termCount;
+    }
+
+    long totalLength() {
+        return totalLength;
+    }
+
+    long maxMessageId() {
+        return maxMessageId;
+    }
+
+    long messageId(int ordinal) {
+        return buffer.getLong(ordinal * DOC_ENTRY_BYTES);
+    }
+
+    long roomId(int ordinal) {
+        return buffer.getLong(ordinal * DOC_ENTRY_BYTES + 8);
+    }
+
+    int length(int ordinal) {
+        return buffer.getInt(ordinal * DOC_ENTRY_BYTES + 16);
+    }
+
+    /** Returns the dictionary index of the term, or -1 if no document of this segment has it. */
+    int findTerm(byte[] term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = compareTerm(mid, term);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    byte[] term(int index) {
+        int entry = dictionaryOffset + index * TERM_ENTRY_BYTES;
+        byte[] term = new byte[buffer.getInt(entry + 4)];
+        buffer.get(termBytesOffset + buffer.getInt(entry), term);
+        return term;
+    }
+
+    int docFreq(int index) {
+        return buffer.getInt(dictionaryOffset + index * TERM_ENTRY_BYTES + 8);
+    }
+
+    Postings postings(int index) {
+        int entry = dictionaryOffset + index * TERM_ENTRY_BYTES;
+        return new Postings(buffer.getInt(entry + 8), buffer.getInt(entry + 12));
+    }
+
+    private int compareTerm(int index, byte[] term) {
+        int entry = dictionaryOffset + index * TERM_ENTRY_BYTES;
+        int start = termBytesOffset + buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        int common = Math.min(length, term.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (buffer.get(start + i) & 0xFF) - (term[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - term.length;
+    }
+
+    /** Cursor over one term's postings in ascending ordinal order; not thread-safe. */
+    final class Postings {
+
+        private final int docFreq;
+        private final int blocks;
+        private final int skipOffset;
+        private final int dataOffset;
+        private int position;
+        private int read;
+        private int doc = -1;
+        private int freq;
+
+        private Postings(int docFreq, int postingsOffset) {
+            this.docFreq = docFreq;
+            this.blocks = (docFreq + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            this.skipOffset = postingsOffset;
+            this.dataOffset = blocks > 1 ? postingsOffset + blocks * SKIP_ENTRY_BYTES : postingsOffset;
+            this.position = dataOffset;
+        }
+
+        int docFreq() {
+            return docFreq;
+        }
+
+        int doc() {
+            return doc;
+        }
+
+        int freq() {
+            return freq;
+        }
+
+        int nextDoc() {
+            if (read == docFreq) {
+                return doc = NO_MORE_DOCS;
+            }
+            doc += readVarInt();
+            freq = readVarInt();
+            read++;
+            return doc;
+        }
+
+        /** Moves to the first posting at or after {@code target}, skipping whole blocks where possible. */
+        int advance(int target) {
+            if (doc >= target) {
+                return doc;
+            }
+            if (blocks > 1) {
+                int block = read / BLOCK_SIZE;
+                int skipTo = block;
+                while (skipTo < blocks - 1 && buffer.getInt(skipOffset + skipTo * SKIP_ENTRY_BYTES) < target) {
+                    skipTo++;
+                }
+                if (skipTo > block) {
+                    int previous = skipOffset + (skipTo - 1) * SKIP_ENTRY_BYTES;
+                    doc = buffer.getInt(previous);
+                    position = dataOffset + buffer.getInt(previous + 4);
+                    read = skipTo * BLOCK_SIZE;
+                }
+            }
+            while (nextDoc() < target) {
+                // Scan within the block
+            }
+            return doc;
+        }
+
+        private int readVarInt() {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = buffer.get(position++);
+                result |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IllegalStateException("Malformed postings in " + path);
+        }
+    }
+}
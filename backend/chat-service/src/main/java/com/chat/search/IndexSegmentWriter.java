@@ -0,0 +1,170 @@
+package com.chat.search;
+
+import com.chat.codec.CompactOutput;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes an {@link IndexSegment} in one pass: every document first, then the terms in ascending
+ * byte order with their postings in ascending document order. Used both to flush a
+ * {@link SegmentBuilder} and to merge segments. Not thread-safe.
+ */
+final class IndexSegmentWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private long position;
+
+    private int docCount;
+    private long totalLength;
+    private long maxMessageId;
+
+    // Term dictionary, written after the postings
+    private final ByteArrayOutputStream termBytes = new ByteArrayOutputStream(64 * 1024);
+    private int[] dictionary = new int[4 * 1024];
+    private int termCount;
+    private byte[] previousTerm;
+
+    // Postings of the current term: skip entries and varint (ordinal delta, frequency) pairs
+    private byte[] currentTerm;
+    private final CompactOutput postings = new CompactOutput(4 * 1024);
+    private int[] skips = new int[64];
+    private int skipCount;
+    private int docFreq;
+    private int lastOrdinal;
+
+    IndexSegmentWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 256 * 1024));
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    /** Adds the next document; its ordinal is the number of documents added before it. */
+    void addDocument(long messageId, long roomId, int length) throws IOException {
+        if (termCount > 0 || currentTerm != null) {
+            throw new IllegalStateException("Documents must be added before terms");
+        }
+        out.writeLong(messageId);
+        out.writeLong(roomId);
+        out.writeInt(length);
+        position += IndexSegment.DOC_ENTRY_BYTES;
+        docCount++;
+        totalLength += length;
+        maxMessageId = Math.max(maxMessageId, messageId);
+    }
+
+    void startTerm(byte[] term) {
+        if (previousTerm != null && Arrays.compareUnsigned(previousTerm, term) >= 0) {
+            throw new IllegalArgumentException("Terms must be added in ascending order");
+        }
+        currentTerm = term;
+        postings.reset();
+        skipCount = 0;
+        docFreq = 0;
+        lastOrdinal = -1;
+    }
+
+    void addPosting(int ordinal, int frequency) {
+        if (ordinal <= lastOrdinal) {
+            throw new IllegalArgumentException("Postings must be added in ascending document order");
+        }
+        if (docFreq > 0 && docFreq % IndexSegment.BLOCK_SIZE == 0) {
+            // Skip entry of the block just completed: its last ordinal and end offset
+            addSkip(lastOrdinal, postings.size());
+        }
+        postings.writeVarLong(ordinal - lastOrdinal);
+        postings.writeVarLong(frequency);
+        lastOrdinal = ordinal;
+        docFreq++;
+    }
+
+    /** Writes the current term's postings; terms left without postings are dropped. */
+    void finishTerm() throws IOException {
+        byte[] term = currentTerm;
+        currentTerm = null;
+        if (docFreq == 0) {
+            return;
+        }
+        long postingsOffset = position;
+        int blocks = (docFreq + IndexSegment.BLOCK_SIZE - 1) / IndexSegment.BLOCK_SIZE;
+        if (blocks > 1) {
+            addSkip(lastOrdinal, postings.size());
+            for (int i = 0; i < blocks * 2; i++) {
+                out.writeInt(skips[i]);
+            }
+            position += (long) blocks * IndexSegment.SKIP_ENTRY_BYTES;
+        }
+        byte[] data = postings.toByteArray();
+        out.write(data);
+        position += data.length;
+        if (position > Integer.MAX_VALUE) {
+            throw new IOException("Index segment exceeds 2 GiB");
+        }
+
+        if ((termCount + 1) * 4 > dictionary.length) {
+            dictionary = Arrays.copyOf(dictionary, dictionary.length * 2);
+        }
+        int entry = termCount * 4;
+        dictionary[entry] = termBytes.size();
+        dictionary[entry + 1] = term.length;
+        dictionary[entry + 2] = docFreq;
+        dictionary[entry + 3] = (int) postingsOffset;
+        termBytes.write(term);
+        termCount++;
+        previousTerm = term;
+    }
+
+    /** Writes the term dictionary and footer and forces the file to disk. */
+    void finish() throws IOException {
+        if (currentTerm != null) {
+            finishTerm();
+        }
+        long dictionaryOffset = position;
+        for (int i = 0; i < termCount * 4; i++) {
+            out.writeInt(dictionary[i]);
+        }
+        long termBytesOffset = dictionaryOffset + (long) termCount * IndexSegment.TERM_ENTRY_BYTES;
+        termBytes.writeTo(out);
+        if (termBytesOffset + termBytes.size() + IndexSegment.FOOTER_BYTES > Integer.MAX_VALUE) {
+            throw new IOException("Index segment exceeds 2 GiB");
+        }
+
+        out.writeInt(IndexSegment.MAGIC);
+        out.writeInt(IndexSegment.VERSION);
+        out.writeInt(docCount);
+        out.writeInt(termCount);
+        out.writeLong(dictionaryOffset);
+        out.writeLong(termBytesOffset);
+        out.writeLong(totalLength);
+        out.writeLong(maxMessageId);
+        out.flush();
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Unfinished files are deleted by the caller
+        out.close();
+    }
+
+    private void addSkip(int ordinal, int endOffset) {
+        if (skipCount * 2 + 2 > skips.length) {
+            skips = Arrays.copyOf(skips, skips.length * 2);
+        }
+        skips[skipCount * 2] = ordinal;
+        skips[skipCount * 2 + 1] = endOffset;
+        skipCount++;
+    }
+}
@@ -0,0 +1,348 @@
+package com.chat.search;
+
+import com.chat.util.LongHashSet;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
+
+/**
+ * Full-text index of chat messages stored as immutable segment files ({@code seg-N.idx}) in a
+ * local directory. Writers add documents to a {@link SegmentBuilder} and {@link #flush} it into a
+ * new segment, which becomes searchable once published; {@link #maybeMerge()} combines
+ * {@code mergeFactor} segments of the same size level into one, so the segment count grows
+ * logarithmically with the number of documents. New files are written under a temporary name
+ * and renamed into place, and merged-away files are deleted after the new segment is published.
+ * <p>
+ * Queries match documents containing every query term and rank them with BM25 over statistics
+ * of all segments. A message indexed twice, e.g. by a backfill overlapping live indexing, is
+ * returned once and dropped for good by the next merge that covers both copies.
+ */
+@Slf4j
+public class MessageIndex {
+
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /** Best first: higher score, then newer message. */
+    public static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(Comparator.comparingLong(Hit::messageId).reversed());
+
+    private final Path directory;
+    private final int mergeFactor;
+    private final int maxMergedDocs;
+    private final AtomicLong nextGeneration = new AtomicLong();
+    private final Object mergeLock = new Object();
+
+    // Replaced, never mutated, under this lock; searches read a snapshot
+    private volatile List<IndexSegment> segments;
+
+    public MessageIndex(Path directory, int mergeFactor, int maxMergedDocs) throws IOException {
+        this.directory = directory;
+        this.mergeFactor = Math.max(2, mergeFactor);
+        this.maxMergedDocs = maxMergedDocs;
+        Files.createDirectories(directory);
+
+        List<IndexSegment> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.delete(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    nextGeneration.set(Math.max(nextGeneration.get(), generation(name) + 1));
+                    try {
+                        loaded.add(IndexSegment.open(file));
+                    } catch (IOException e) {
+                        log.error("Deleting unreadable index segment {}", file, e);
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+        this.segments = List.copyOf(loaded);
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long docCount() {
+        long count = 0;
+        for (IndexSegment segment : segments) {
+            count += segment.docCount();
+        }
+        return count;
+    }
+
+    /** Writes the builder's documents as a new segment, publishes it and clears the builder. */
+    public void flush(SegmentBuilder builder) throws IOException {
+        if (builder.isEmpty()) {
+            return;
+        }
+        IndexSegment segment = IndexSegment.open(write(builder::writeTo));
+        synchronized (this) {
+            List<IndexSegment> next = new ArrayList<>(segments);
+            next.add(segment);
+            segments = List.copyOf(next);
+        }
+        builder.clear();
+    }
+
+    /**
+     * Merges the smallest {@code mergeFactor} segments of the lowest size level that has that
+     * many, if any; returns whether a merge ran.
+     */
+    public boolean maybeMerge() throws IOException {
+        synchronized (mergeLock) {
+            List<IndexSegment> group = selectMerge(segments);
+            if (group == null) {
+                return false;
+            }
+            IndexSegment merged = IndexSegment.open(write(writer -> merge(group, writer)));
+            synchronized (this) {
+                List<IndexSegment> next = new ArrayList<>(segments);
+                next.removeAll(group);
+                next.add(merged);
+                segments = List.copyOf(next);
+            }
+            // Searches still holding the old segments keep their mappings after the unlink
+            for (IndexSegment segment : group) {
+                Files.deleteIfExists(segment.path());
+            }
+            log.debug("Merged {} index segments into {} ({} documents)",
+                    group.size(), merged.path().getFileName(), merged.docCount());
+            return true;
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} messages containing every term of {@code query} in rooms
+     * accepted by {@code roomFilter}, best first by {@link #RANKING}, starting after
+     * {@code after} when paging.
+     */
+    public List<Hit> search(String query, LongPredicate roomFilter, Hit after, int limit) {
+        List<byte[]> terms = Tokenizer.tokenize(query).stream().distinct()
+                .map(term -> term.getBytes(StandardCharsets.UTF_8)).toList();
+        List<IndexSegment> current = segments;
+        if (terms.isEmpty() || current.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        // Collection-wide statistics for BM25
+        long docCount = 0;
+        long totalLength = 0;
+        long[] docFreqs = new long[terms.size()];
+        int[][] termIndexes = new int[current.size()][terms.size()];
+        for (int s = 0; s < current.size(); s++) {
+            IndexSegment segment = current.get(s);
+            docCount += segment.docCount();
+            totalLength += segment.totalLength();
+            for (int t = 0; t < terms.size(); t++) {
+                int index = segment.findTerm(terms.get(t));
+                termIndexes[s][t] = index;
+                if (index >= 0) {
+                    docFreqs[t] += segment.docFreq(index);
+                }
+            }
+        }
+        double[] idf = new double[terms.size()];
+        for (int t = 0; t < terms.size(); t++) {
+            if (docFreqs[t] == 0) {
+                return List.of();
+            }
+            idf[t] = Math.log(1 + (docCount - docFreqs[t] + 0.5) / (docFreqs[t] + 0.5));
+        }
+        double averageLength = Math.max(1.0, (double) totalLength / docCount);
+
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        LongHashSet admitted = new LongHashSet(Math.min(limit, 1 << 16));
+        for (int s = 0; s < current.size(); s++) {
+            collect(current.get(s), termIndexes[s], idf, averageLength, roomFilter, after, limit, top, admitted);
+        }
+
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(RANKING);
+        return hits;
+    }
+
+    /**
+     * Adds the segment's matches to {@code top}. Copies of a message have the same content and so
+     * the same score; the first copy to enter the top is kept, and later copies are skipped rather
+     * than take a slot. A copy never ranks above an evicted one, so this holds after evictions too.
+     */
+    private static void collect(IndexSegment segment, int[] termIndexes, double[] idf, double averageLength,
+                                LongPredicate roomFilter, Hit after, int limit, PriorityQueue<Hit> top,
+                                LongHashSet admitted) {
+        int terms = termIndexes.length;
+        IndexSegment.Postings[] postings = new IndexSegment.Postings[terms];
+        for (int t = 0; t < terms; t++) {
+            if (termIndexes[t] < 0) {
+                return;
+            }
+            postings[t] = segment.postings(termIndexes[t]);
+        }
+        // Lead with the rarest term; the others only advance to its candidates
+        Integer[] order = new Integer[terms];
+        for (int t = 0; t < terms; t++) {
+            order[t] = t;
+        }
+        Arrays.sort(order, Comparator.comparingInt(t -> postings[t].docFreq()));
+        IndexSegment.Postings lead = postings[order[0]];
+
+        int doc = lead.nextDoc();
+        candidates:
+        while (doc != IndexSegment.NO_MORE_DOCS) {
+            for (int i = 1; i < terms; i++) {
+                int other = postings[order[i]].advance(doc);
+                if (other > doc) {
+                    doc = lead.advance(other);
+                    continue candidates;
+                }
+            }
+
+            long roomId = segment.roomId(doc);
+            if (roomFilter.test(roomId)) {
+                double norm = K1 * (1 - B + B * segment.length(doc) / averageLength);
+                double score = 0;
+                for (int t = 0; t < terms; t++) {
+                    int freq = postings[t].freq();
+                    score += idf[t] * freq * (K1 + 1) / (freq + norm);
+                }
+                Hit hit = new Hit(segment.messageId(doc), roomId, score);
+                if ((after == null || RANKING.compare(hit, after) > 0)
+                        && (top.size() < limit || RANKING.compare(hit, top.peek()) < 0)
+                        && admitted.add(hit.messageId())) {
+                    if (top.size() == limit) {
+                        top.poll();
+                    }
+                    top.add(hit);
+                }
+            }
+            doc = lead.nextDoc();
+        }
+    }
+
+    private List<IndexSegment> selectMerge(List<IndexSegment> current) {
+        Map<Integer, List<IndexSegment>> levels = new TreeMap<>();
+        for (IndexSegment segment : current) {
+            if (segment.docCount() < maxMergedDocs) {
+                int level = (int) (Math.log(Math.max(1, segment.docCount())) / Math.log(mergeFactor));
+                levels.computeIfAbsent(level, key -> new ArrayList<>()).add(segment);
+            }
+        }
+        for (List<IndexSegment> level : levels.values()) {
+            if (level.size() < mergeFactor) {
+                continue;
+            }
+            level.sort(Comparator.comparingInt(IndexSegment::docCount));
+            List<IndexSegment> group = List.copyOf(level.subList(0, mergeFactor));
+            long docs = group.stream().mapToLong(IndexSegment::docCount).sum();
+            if (docs <= maxMergedDocs) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    /** Concatenates the documents of the group, dropping repeated message ids, and unions the terms. */
+    private static void merge(List<IndexSegment> group, IndexSegmentWriter writer) throws IOException {
+        int[][] remap = new int[group.size()][];
+        long total = group.stream().mapToLong(IndexSegment::docCount).sum();
+        LongHashSet seen = new LongHashSet((int) Math.min(total, Integer.MAX_VALUE / 2));
+        for (int s = 0; s < group.size(); s++) {
+            IndexSegment segment = group.get(s);
+            remap[s] = new int[segment.docCount()];
+            for (int ordinal = 0; ordinal < segment.docCount(); ordinal++) {
+                long messageId = segment.messageId(ordinal);
+                if (seen.add(messageId)) {
+                    remap[s][ordinal] = writer.docCount();
+                    writer.addDocument(messageId, segment.roomId(ordinal), segment.length(ordinal));
+                } else {
+                    remap[s][ordinal] = -1;
+                }
+            }
+        }
+
+        // Equal terms come out in segment order, which keeps the remapped ordinals ascending
+        PriorityQueue<TermCursor> queue = new PriorityQueue<>(Comparator
+                .comparing(TermCursor::term, Arrays::compareUnsigned)
+                .thenComparingInt(TermCursor::segment));
+        for (int s = 0; s < group.size(); s++) {
+            if (group.get(s).termCount() > 0) {
+                queue.add(new TermCursor(s, 0, group.get(s).term(0)));
+            }
+        }
+        while (!queue.isEmpty()) {
+            byte[] term = queue.peek().term();
+            writer.startTerm(term);
+            while (!queue.isEmpty() && Arrays.equals(queue.peek().term(), term)) {
+                TermCursor cursor = queue.poll();
+                IndexSegment segment = group.get(cursor.segment());
+                IndexSegment.Postings postings = segment.postings(cursor.index());
+                for (int doc = postings.nextDoc(); doc != IndexSegment.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                    int ordinal = remap[cursor.segment()][doc];
+                    if (ordinal >= 0) {
+                        writer.addPosting(ordinal, postings.freq());
+                    }
+                }
+                int next = cursor.index() + 1;
+                if (next < segment.termCount()) {
+                    queue.add(new TermCursor(cursor.segment(), next, segment.term(next)));
+                }
+            }
+            writer.finishTerm();
+        }
+    }
+
+    private Path write(SegmentContent content) throws IOException {
+        String name = String.format("%s%012d%s", SEGMENT_PREFIX, nextGeneration.getAndIncrement(), SEGMENT_SUFFIX);
+        Path target = directory.resolve(name);
+        Path temp = directory.resolve(name + TEMP_SUFFIX);
+        try (IndexSegmentWriter writer = new IndexSegmentWriter(temp)) {
+            content.writeTo(writer);
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    private static long generation(String name) {
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** A matching message and its BM25 score. */
+    public record Hit(long messageId, long roomId, double score) {
+    }
+
+    private record TermCursor(int segment, int index, byte[] term) {
+    }
+
+    @FunctionalInterface
+    private interface SegmentContent {
+        void writeTo(IndexSegmentWriter writer) throws IOException;
+    }
+}
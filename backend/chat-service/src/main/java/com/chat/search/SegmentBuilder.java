@@ -0,0 +1,108 @@
+package com.chat.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory buffer of documents that {@link MessageIndex#flush} turns into a new segment.
+ * Postings accumulate per term as documents are added, so writing the segment only sorts the
+ * terms. Not thread-safe; each writer thread keeps its own builder.
+ */
+public final class SegmentBuilder {
+
+    private long[] messageIds = new long[1024];
+    private long[] roomIds = new long[1024];
+    private int[] lengths = new int[1024];
+    private int docCount;
+    private long maxMessageId;
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    public void add(long messageId, long roomId, String content) {
+        if (docCount == messageIds.length) {
+            messageIds = Arrays.copyOf(messageIds, docCount * 2);
+            roomIds = Arrays.copyOf(roomIds, docCount * 2);
+            lengths = Arrays.copyOf(lengths, docCount * 2);
+        }
+        List<String> terms = Tokenizer.tokenize(content);
+        int ordinal = docCount++;
+        messageIds[ordinal] = messageId;
+        roomIds[ordinal] = roomId;
+        lengths[ordinal] = terms.size();
+        maxMessageId = Math.max(maxMessageId, messageId);
+
+        // Sorting groups repeated terms, so frequencies are counted without a per-document map
+        terms.sort(null);
+        for (int i = 0; i < terms.size(); ) {
+            String term = terms.get(i);
+            int end = i + 1;
+            while (end < terms.size() && terms.get(end).equals(term)) {
+                end++;
+            }
+            postings.computeIfAbsent(term, key -> new Postings()).add(ordinal, end - i);
+            i = end;
+        }
+    }
+
+    public int docCount() {
+        return docCount;
+    }
+
+    public boolean isEmpty() {
+        return docCount == 0;
+    }
+
+    /** Highest message id added since the last {@link #clear()}, or 0 if none. */
+    public long maxMessageId() {
+        return maxMessageId;
+    }
+
+    public void clear() {
+        docCount = 0;
+        maxMessageId = 0;
+        postings.clear();
+    }
+
+    void writeTo(IndexSegmentWriter writer) throws IOException {
+        for (int i = 0; i < docCount; i++) {
+            writer.addDocument(messageIds[i], roomIds[i], lengths[i]);
+        }
+
+        // Segments order terms by their UTF-8 bytes, which differs from String order for surrogates
+        TermEntry[] entries = new TermEntry[postings.size()];
+        int index = 0;
+        for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+            entries[index++] = new TermEntry(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue());
+        }
+        Arrays.sort(entries, (a, b) -> Arrays.compareUnsigned(a.term(), b.term()));
+
+        for (TermEntry entry : entries) {
+            writer.startTerm(entry.term());
+            Postings list = entry.postings();
+            for (int i = 0; i < list.size; i += 2) {
+                writer.addPosting(list.values[i], list.values[i + 1]);
+            }
+            writer.finishTerm();
+        }
+    }
+
+    private record TermEntry(byte[] term, Postings postings) {
+    }
+
+    /** (ordinal, frequency) pairs of one term. */
+    private static final class Postings {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int ordinal, int frequency) {
+            if (size + 2 > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size++] = ordinal;
+            values[size++] = frequency;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.chat.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into index terms: maximal runs of letters and digits, lower-cased, with terms
+ * longer than {@link #MAX_TERM_LENGTH} characters truncated. Indexing and queries share it, so
+ * both sides agree on what a term is.
+ */
+final class Tokenizer {
+
+    static final int MAX_TERM_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        StringBuilder term = new StringBuilder(MAX_TERM_LENGTH);
+        int length = text.length();
+        for (int i = 0; i < length; ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.appendCodePoint(Character.toLowerCase(codePoint));
+                }
+            } else if (!term.isEmpty()) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (!term.isEmpty()) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,12 @@
+package com.chat.security;
+
+import java.security.Principal;
+
+/** User of an authenticated STOMP session, taken from the JWT sent with CONNECT. */
+public record ChatPrincipal(Long userId, String username) implements Principal {
+
+    @Override
+    public String getName() {
+        return String.valueOf(userId);
+    }
+}
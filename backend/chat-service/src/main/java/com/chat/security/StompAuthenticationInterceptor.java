@@ -0,0 +1,107 @@
+package com.chat.security;
+
+import com.chat.service.RoomMembershipIndex;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Authenticates STOMP sessions on the client inbound channel. The gateway does not filter
+ * {@code /ws}, so a CONNECT frame must carry the JWT issued by auth-service in its
+ * {@code Authorization} header; the session's principal is then a {@link ChatPrincipal} for the
+ * token's user and every later frame of the session carries it. Subscriptions to a room's topics
+ * are only accepted from participants of the room, and clients may only SEND to application
+ * destinations, whose handlers check the sender; a SEND straight to a broker destination would
+ * be fanned out to subscribers unchecked.
+ */
+@Component
+@Slf4j
+public class StompAuthenticationInterceptor implements ChannelInterceptor {
+
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String APPLICATION_PREFIX = "/app/";
+    private static final Pattern ROOM_TOPIC = Pattern.compile("^/topic/(?:messages|typing|receipts)/(\\d{1,18})$");
+
+    private final JwtParser jwtParser;
+    private final RoomMembershipIndex roomMembershipIndex;
+
+    public StompAuthenticationInterceptor(
+            @Value("${jwt.secret}") String secret,
+            RoomMembershipIndex roomMembershipIndex) {
+        this.jwtParser = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .build();
+        this.roomMembershipIndex = roomMembershipIndex;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            // Rejecting the frame makes the server answer with an ERROR frame
+            accessor.setUser(authenticate(accessor.getFirstNativeHeader(AUTHORIZATION_HEADER)));
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            authorizeSubscription(accessor.getUser(), accessor.getDestination());
+        } else if (StompCommand.SEND.equals(accessor.getCommand())) {
+            String destination = accessor.getDestination();
+            if (destination == null || !destination.startsWith(APPLICATION_PREFIX)) {
+                throw new MessageDeliveryException("SEND is only allowed to " + APPLICATION_PREFIX + " destinations");
+            }
+        }
+        return message;
+    }
+
+    /** Returns the session's user, or null if the frame did not come from an authenticated session. */
+    public static ChatPrincipal currentUser(Principal principal) {
+        return principal instanceof ChatPrincipal user ? user : null;
+    }
+
+    private ChatPrincipal authenticate(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            throw new MessageDeliveryException("Missing bearer token in CONNECT");
+        }
+        try {
+            Claims claims = jwtParser.parseSignedClaims(authorization.substring(BEARER_PREFIX.length())).getPayload();
+            return new ChatPrincipal(Long.parseLong(claims.getSubject()), claims.get("username", String.class));
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected STOMP CONNECT: {}", e.getMessage());
+            throw new MessageDeliveryException("Invalid or expired token");
+        }
+    }
+
+    private void authorizeSubscription(Principal principal, String destination) {
+        if (destination == null) {
+            return;
+        }
+        Matcher matcher = ROOM_TOPIC.matcher(destination);
+        if (!matcher.matches()) {
+            return;
+        }
+        ChatPrincipal user = currentUser(principal);
+        Long roomId = Long.valueOf(matcher.group(1));
+        if (user == null || !roomMembershipIndex.isMember(roomId, user.userId())) {
+            throw new MessageDeliveryException("Not a participant of room " + roomId);
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package com.chat.service;
 
+import com.chat.archive.MessageArchive;
+import com.chat.dto.ChatMessageDTO;
 import com.chat.dto.CreateChatRoomRequest;
+import com.chat.dto.MessagePage;
+import com.chat.dto.MessageSearchPage;
+import com.chat.dto.ReceiptUpdateDTO;
+import com.chat.dto.RoomSummaryPage;
 import com.chat.model.ChatRoom;
 import com.chat.model.Message;
 import com.chat.model.Participant;
@@ -8,18 +14,34 @@ import com.chat.repository.ChatRoomRepository;
 import com.chat.repository.MessageRepository;
 import com.chat.repository.ParticipantRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 public class ChatService {
 
+    public static final int MAX_PAGE_SIZE = 200;
+
     private final ChatRoomRepository chatRoomRepository;
     private final ParticipantRepository participantRepository;
     private final MessageRepository messageRepository;
+    private final MessageBatchWriter messageBatchWriter;
+    private final RecentMessageCache recentMessageCache;
+    private final RoomMembershipIndex roomMembershipIndex;
+    private final ReceiptService receiptService;
+    private final UnreadCounterService unreadCounterService;
+    private final RoomSummaryService roomSummaryService;
+    private final MessageArchive messageArchive;
+    private final MessageSearchService messageSearchService;
 
     @Transactional
     public ChatRoom createChatRoom(Long creatorId, CreateChatRoomRequest request) {
@@ -38,44 +60,149 @@ public class ChatService {
         chatRoom.setCreatedBy(creatorId);
         chatRoom = chatRoomRepository.save(chatRoom);
 
-        // Add creator as participant
-        Participant creatorParticipant = new Participant();
-        creatorParticipant.setUserId(creatorId);
-        creatorParticipant.setChatRoomId(chatRoom.getId());
-        participantRepository.save(creatorParticipant);
-
-        // Add other participants
+        // Ids are assigned before insert, so the participant rows go out as one JDBC batch
+        List<Participant> participants = new ArrayList<>(request.getParticipantIds().size() + 1);
+        participants.add(newParticipant(creatorId, chatRoom.getId()));
         for (Long userId : request.getParticipantIds()) {
             if (!userId.equals(creatorId)) {
-                Participant participant = new Participant();
-                participant.setUserId(userId);
-                participant.setChatRoomId(chatRoom.getId());
-                participantRepository.save(participant);
+                participants.add(newParticipant(userId, chatRoom.getId()));
             }
         }
+        participantRepository.saveAll(participants);
+        int participantCount = participants.size();
+
+        roomSummaryService.onRoomCreated(chatRoom, participantCount);
 
+        roomMembershipIndex.invalidateAfterCommit(chatRoom.getId());
         return chatRoom;
     }
 
+    private static Participant newParticipant(Long userId, Long chatRoomId) {
+        Participant participant = new Participant();
+        participant.setUserId(userId);
+        participant.setChatRoomId(chatRoomId);
+        return participant;
+    }
+
     public List<ChatRoom> getUserChatRooms(Long userId) {
         return chatRoomRepository.findByUserId(userId);
     }
 
+    public RoomSummaryPage getUserRoomSummaries(Long userId, String cursor, int limit) {
+        return roomSummaryService.getUserRooms(userId, cursor, limit);
+    }
+
+    public Map<Long, Long> getUnreadCounts(Long userId) {
+        return unreadCounterService.getUnreadCounts(userId);
+    }
+
     public ChatRoom getChatRoom(Long roomId) {
         return chatRoomRepository.findById(roomId)
                 .orElseThrow(() -> new RuntimeException("Chat room not found"));
     }
 
-    public List<Message> getRoomMessages(Long roomId) {
-        return messageRepository.findByChatRoomIdOrderByTimestampAsc(roomId);
+    public MessagePage getRoomMessages(Long roomId, Long before, Long after, int limit) {
+        // Stored status is always "sent"; delivered/read come from the room's receipt watermarks
+        return receiptService.withStatus(roomId, loadRoomMessages(roomId, before, after, limit));
+    }
+
+    private MessagePage loadRoomMessages(Long roomId, Long before, Long after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        if (after != null) {
+            return toPage(findAfter(roomId, after, pageSize + 1), pageSize, true);
+        }
+
+        MessagePage cached = recentMessageCache.getPage(roomId, before, pageSize);
+        if (cached != null) {
+            return cached;
+        }
+        if (before != null) {
+            return toPage(findBefore(roomId, before, pageSize + 1), pageSize, false);
+        }
+
+        int window = recentMessageCache.getMessagesPerRoom();
+        Object loadToken = pageSize <= window ? recentMessageCache.beginLoad(roomId) : null;
+        if (loadToken == null) {
+            return toPage(findBefore(roomId, null, pageSize + 1), pageSize, false);
+        }
+
+        // Read the whole cache window so the next requests for this room are served from memory
+        List<Message> rows = findBefore(roomId, null, window + 1);
+        List<ChatMessageDTO> latest = new ArrayList<>(Math.min(rows.size(), window));
+        for (int i = Math.min(rows.size(), window) - 1; i >= 0; i--) {
+            latest.add(toDTO(rows.get(i)));
+        }
+        recentMessageCache.completeLoad(roomId, loadToken, latest, rows.size() <= window);
+        return toPage(rows.subList(0, Math.min(rows.size(), pageSize + 1)), pageSize, false);
+    }
+
+    // Hot rows from the partitioned table, merged with archived partitions where they can reach the page
+    private List<Message> findBefore(Long roomId, Long before, int limit) {
+        List<Message> hot = before == null
+                ? messageRepository.findByChatRoomIdOrderByIdDesc(roomId, Limit.of(limit))
+                : messageRepository.findByChatRoomIdAndIdLessThanOrderByIdDesc(roomId, before, Limit.of(limit));
+        return messageArchive.mergeBefore(roomId, before, hot, limit);
+    }
+
+    private List<Message> findAfter(Long roomId, Long after, int limit) {
+        List<Message> hot = messageRepository.findByChatRoomIdAndIdGreaterThanOrderByIdAsc(roomId, after, Limit.of(limit));
+        return messageArchive.mergeAfter(roomId, after, hot, limit);
+    }
+
+    private MessagePage toPage(List<Message> rows, int pageSize, boolean forward) {
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatMessageDTO> messages = new ArrayList<>(Math.min(rows.size(), pageSize));
+        for (int i = 0; i < rows.size() && i < pageSize; i++) {
+            messages.add(toDTO(rows.get(i)));
+        }
+        if (!forward) {
+            Collections.reverse(messages);
+        }
+
+        Long nextCursor = null;
+        if (hasMore) {
+            // Backwards pages continue from their oldest message, forward pages from their newest
+            nextCursor = forward ? messages.get(messages.size() - 1).getId() : messages.get(0).getId();
+        }
+        return new MessagePage(messages, nextCursor, hasMore);
+    }
+
+    public MessageSearchPage searchMessages(Long userId, String query, Long roomId, String cursor, int limit) {
+        return messageSearchService.search(userId, query, roomId, cursor, limit);
+    }
+
+    /** Maps a stored message to its DTO; shared with message search, which cannot depend on this service. */
+    public static ChatMessageDTO toDTO(Message message) {
+        ChatMessageDTO dto = new ChatMessageDTO();
+        dto.setId(message.getId());
+        dto.setChatRoomId(message.getChatRoomId());
+        dto.setSenderId(message.getSenderId());
+        dto.setContent(message.getContent());
+        dto.setTimestamp(message.getTimestamp().format(DateTimeFormatter.ISO_DATE_TIME));
+        dto.setStatus(message.getStatus());
+        dto.setType(ChatMessageDTO.MessageType.CHAT);
+        return dto;
     }
 
     public Message saveMessage(Message message) {
         return messageRepository.save(message);
     }
 
+    public CompletableFuture<Message> persistMessage(Message message) {
+        if (messageBatchWriter.isEnabled()) {
+            return messageBatchWriter.enqueue(message);
+        }
+        Message saved = saveMessage(message);
+        roomSummaryService.onMessagesPersisted(List.of(saved));
+        return CompletableFuture.completedFuture(saved);
+    }
+
     public boolean isUserInRoom(Long userId, Long roomId) {
-        return participantRepository.existsByUserIdAndChatRoomId(userId, roomId);
+        return roomMembershipIndex.isMember(roomId, userId);
+    }
+
+    public List<ReceiptUpdateDTO.Receipt> getRoomReceipts(Long roomId) {
+        return receiptService.getReceipts(roomId);
     }
 
     public List<Participant> getRoomParticipants(Long roomId) {
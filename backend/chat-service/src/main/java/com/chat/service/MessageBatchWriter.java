@@ -0,0 +1,269 @@
+package com.chat.service;
+
+import com.chat.model.Message;
+import com.chat.util.TimeOrderedIdGenerator;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind pipeline for chat messages. Messages get their id when queued and are collected
+ * into micro-batches bounded by size and time, which are inserted as one JDBC batch (rewritten
+ * into multi-row inserts by the driver); each caller's future completes once the batch
+ * containing its message has been committed.
+ * <p>
+ * Futures are completed on {@code delivery-threads} delivery lanes rather than on the flusher,
+ * so the delivery chained to them runs in parallel and the next batch is not held up by it.
+ * A room always maps to the same lane, which keeps its messages in commit order.
+ * <p>
+ * Each batch is inserted in one transaction. If it violates a constraint, e.g. a foreign key to
+ * a room deleted meanwhile, the batch is split in halves and retried until the offending rows are
+ * isolated, so only their senders see the failure.
+ */
+@Service
+@Slf4j
+public class MessageBatchWriter {
+
+    private static final String INSERT =
+            "INSERT INTO messages (id, chat_room_id, sender_id, content, timestamp, status) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RoomSummaryService roomSummaryService;
+    private final TimeOrderedIdGenerator idGenerator;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<PendingMessage> queue;
+    private final Timer flushTimer;
+    private final ExecutorService[] deliveryLanes;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MessageBatchWriter(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            RoomSummaryService roomSummaryService,
+            TimeOrderedIdGenerator idGenerator,
+            MeterRegistry meterRegistry,
+            @Value("${chat.persistence.write-behind.enabled:false}") boolean enabled,
+            @Value("${chat.persistence.write-behind.batch-size:100}") int batchSize,
+            @Value("${chat.persistence.write-behind.max-delay-ms:10}") long maxDelayMs,
+            @Value("${chat.persistence.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${chat.persistence.write-behind.delivery-threads:4}") int deliveryThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.roomSummaryService = roomSummaryService;
+        this.idGenerator = idGenerator;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.deliveryLanes = new ExecutorService[Math.max(1, deliveryThreads)];
+        this.flushTimer = Timer.builder("chat.persistence.flush")
+                .description("Latency of write-behind batch inserts")
+                .register(meterRegistry);
+        Gauge.builder("chat.persistence.queue.depth", queue, BlockingQueue::size)
+                .description("Messages waiting to be flushed by the write-behind pipeline")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < deliveryLanes.length; i++) {
+            String name = "message-delivery-" + i;
+            deliveryLanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        running = true;
+        flusher = new Thread(this::run, "message-batch-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Write-behind message persistence enabled (batch size {}, max delay {} ms)",
+                batchSize, TimeUnit.NANOSECONDS.toMillis(maxDelayNanos));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        for (ExecutorService lane : deliveryLanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : deliveryLanes) {
+            lane.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    public CompletableFuture<Message> enqueue(Message message) {
+        message.setId(idGenerator.nextId());
+        PendingMessage pending = new PendingMessage(message, new CompletableFuture<>());
+        try {
+            if (!queue.offer(pending, 1, TimeUnit.SECONDS)) {
+                pending.future().completeExceptionally(
+                        new IllegalStateException("Message write-behind queue is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future().completeExceptionally(e);
+        }
+        return pending.future();
+    }
+
+    private void run() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingMessage> batch) {
+        Map<PendingMessage, Exception> failed = new IdentityHashMap<>();
+        long start = System.nanoTime();
+        insertIsolatingFailures(batch, failed);
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        List<Message> messages = new ArrayList<>(batch.size());
+        for (PendingMessage pending : batch) {
+            Exception failure = failed.get(pending);
+            complete(pending, failure);
+            if (failure == null) {
+                messages.add(pending.message());
+            }
+        }
+        // After completing the futures, so delivery does not wait on the projection
+        if (!messages.isEmpty()) {
+            roomSummaryService.onMessagesPersisted(messages);
+        }
+    }
+
+    /**
+     * Inserts {@code batch} atomically, bisecting it on constraint violations until each failing
+     * row is on its own; other errors, such as the database being unreachable, fail the whole batch.
+     */
+    private void insertIsolatingFailures(List<PendingMessage> batch, Map<PendingMessage, Exception> failed) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() == 1) {
+                log.error("Error persisting message {}", batch.get(0).message().getId(), e);
+                failed.put(batch.get(0), e);
+                return;
+            }
+            log.warn("Batch of {} messages violates a constraint, retrying in halves: {}",
+                    batch.size(), e.getMostSpecificCause().getMessage());
+            int half = batch.size() / 2;
+            insertIsolatingFailures(batch.subList(0, half), failed);
+            insertIsolatingFailures(batch.subList(half, batch.size()), failed);
+        } catch (RuntimeException e) {
+            log.error("Error flushing batch of {} messages", batch.size(), e);
+            batch.forEach(pending -> failed.put(pending, e));
+        }
+    }
+
+    private void complete(PendingMessage pending, Throwable failure) {
+        Runnable completion = () -> {
+            if (failure == null) {
+                pending.future().complete(pending.message());
+            } else {
+                pending.future().completeExceptionally(failure);
+            }
+        };
+        long h = pending.message().getChatRoomId() * 0x9E3779B97F4A7C15L;
+        try {
+            deliveryLanes[(int) Long.remainderUnsigned(h >>> 32, deliveryLanes.length)].execute(completion);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; finish the message here rather than leave its sender waiting
+            completion.run();
+        }
+    }
+
+    private int[] insert(List<PendingMessage> batch) {
+        return jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Message message = batch.get(i).message();
+                ps.setLong(1, message.getId());
+                ps.setLong(2, message.getChatRoomId());
+                ps.setLong(3, message.getSenderId());
+                ps.setString(4, message.getContent());
+                ps.setTimestamp(5, Timestamp.valueOf(message.getTimestamp()));
+                ps.setString(6, message.getStatus());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+    }
+
+    private record PendingMessage(Message message, CompletableFuture<Message> future) {
+    }
+}
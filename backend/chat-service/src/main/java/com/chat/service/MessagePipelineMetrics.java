@@ -0,0 +1,132 @@
+package com.chat.service;
+
+import com.chat.config.DatabaseConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for each stage a chat message passes through: persistence, the Redis publish and the
+ * dispatch into the local broker, plus gauges for the STOMP channel queues, open sessions and
+ * the database concurrency limiter.
+ * Stage timers publish histograms so latency percentiles can be aggregated across nodes.
+ */
+@Component
+public class MessagePipelineMetrics {
+
+    private final Timer persistTimer;
+    private final Timer publishTimer;
+    private final Timer localDispatchTimer;
+    private final Timer relayDispatchTimer;
+    private final Counter publishFailures;
+    private final Counter persistFailures;
+    private final Counter rejected;
+    // SessionDisconnectEvent may be published more than once per session, so track ids rather than count
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+
+    public MessagePipelineMetrics(
+            MeterRegistry meterRegistry,
+            SessionPresenceTracker sessionPresenceTracker,
+            DatabaseConcurrencyLimiter databaseLimiter,
+            @Qualifier("clientInboundChannelExecutor") TaskExecutor clientInboundChannelExecutor,
+            @Qualifier("clientOutboundChannelExecutor") TaskExecutor clientOutboundChannelExecutor) {
+        this.persistTimer = stageTimer(meterRegistry, "persist", "Time from receiving a message until it is stored");
+        this.publishTimer = stageTimer(meterRegistry, "publish", "Time to publish a message to the Redis bus");
+        this.localDispatchTimer = Timer.builder("chat.pipeline.dispatch")
+                .description("Time to hand a message to the local broker")
+                .tag("source", "local")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.relayDispatchTimer = Timer.builder("chat.pipeline.dispatch")
+                .description("Time to hand a message to the local broker")
+                .tag("source", "relay")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.persistFailures = Counter.builder("chat.pipeline.failures").tag("stage", "persist").register(meterRegistry);
+        this.publishFailures = Counter.builder("chat.pipeline.failures").tag("stage", "publish").register(meterRegistry);
+        this.rejected = Counter.builder("chat.pipeline.rejected")
+                .description("Messages rejected because the sender is not a room participant")
+                .register(meterRegistry);
+
+        Gauge.builder("chat.websocket.channel.queue", clientInboundChannelExecutor, MessagePipelineMetrics::queueDepth)
+                .tag("channel", "inbound")
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.channel.queue", clientOutboundChannelExecutor, MessagePipelineMetrics::queueDepth)
+                .tag("channel", "outbound")
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.sessions", sessions, Set::size).register(meterRegistry);
+        Gauge.builder("chat.websocket.users", sessionPresenceTracker, SessionPresenceTracker::connectedUserCount)
+                .register(meterRegistry);
+
+        Gauge.builder("chat.db.limiter.active", databaseLimiter, DatabaseConcurrencyLimiter::activeCount)
+                .register(meterRegistry);
+        Gauge.builder("chat.db.limiter.waiting", databaseLimiter, DatabaseConcurrencyLimiter::waitingCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.db.limiter.rejected", databaseLimiter, DatabaseConcurrencyLimiter::rejectedCount)
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) {
+            sessions.add(sessionId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    public void recordPersist(long startNanos, boolean success) {
+        persistTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (!success) {
+            persistFailures.increment();
+        }
+    }
+
+    public void recordPublish(long startNanos, boolean success) {
+        publishTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (!success) {
+            publishFailures.increment();
+        }
+    }
+
+    public void recordLocalDispatch(long startNanos) {
+        localDispatchTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRelayDispatch(long startNanos) {
+        relayDispatchTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage, String description) {
+        return Timer.builder("chat.pipeline." + stage)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static double queueDepth(TaskExecutor executor) {
+        return executor instanceof ThreadPoolTaskExecutor pool ? pool.getQueueSize() : 0;
+    }
+}
@@ -1,6 +1,8 @@
 package com.chat.service;
 
+import com.chat.config.NodeIdentity;
 import com.chat.dto.ChatMessageDTO;
+import com.chat.dto.ClusterMessage;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,14 +15,19 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class MessagePublisher {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisTemplate<String, ClusterMessage> clusterMessageTemplate;
     private final ChannelTopic chatTopic;
+    private final NodeIdentity nodeIdentity;
+    private final MessagePipelineMetrics pipelineMetrics;
 
     public void publish(ChatMessageDTO message) {
+        long start = System.nanoTime();
         try {
-            redisTemplate.convertAndSend(chatTopic.getTopic(), message);
+            clusterMessageTemplate.convertAndSend(chatTopic.getTopic(), new ClusterMessage(nodeIdentity.getNodeId(), message));
+            pipelineMetrics.recordPublish(start, true);
             log.debug("Published message to Redis: {}", message);
         } catch (Exception e) {
+            pipelineMetrics.recordPublish(start, false);
             log.error("Error publishing message to Redis", e);
         }
     }
@@ -0,0 +1,415 @@
+package com.chat.service;
+
+import com.chat.archive.MessageArchive;
+import com.chat.dto.ChatMessageDTO;
+import com.chat.dto.MessageSearchPage;
+import com.chat.model.Message;
+import com.chat.repository.MessageRepository;
+import com.chat.repository.ParticipantRepository;
+import com.chat.search.MessageIndex;
+import com.chat.search.SegmentBuilder;
+import com.chat.util.LongHashSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+
+/**
+ * Keeps this node's {@link MessageIndex} current and answers message searches.
+ * <p>
+ * Every node indexes every message: the ones it persists and the ones relayed from other nodes
+ * are queued on delivery, and a single indexer thread turns the queue into a new segment every
+ * {@code refresh-interval-ms}, after which they are searchable. Merges run on their own thread.
+ * <p>
+ * A checkpoint file records the message id up to which the index is known to be complete. On
+ * start, rows above it are streamed from {@code messages} (and, for an empty index, archived
+ * partitions too). While running, the checkpoint trails the indexed ids by one refresh, so
+ * messages committed slightly out of id order are still covered by the next start's backfill.
+ * It stops advancing if a message could not be indexed.
+ */
+@Service
+@Slf4j
+public class MessageSearchService {
+
+    public static final int MAX_PAGE_SIZE = 50;
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String BACKFILL_PAGE =
+            "SELECT id, chat_room_id, content FROM messages WHERE id > ? AND id <= ? ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MessageRepository messageRepository;
+    private final ParticipantRepository participantRepository;
+    private final MessageArchive messageArchive;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Path directory;
+    private final long refreshIntervalNanos;
+    private final int mergeFactor;
+    private final int maxMergedDocs;
+    private final int flushDocs;
+    private final int backfillBatchSize;
+    private final BlockingQueue<IndexRequest> queue;
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "search-merger");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Timer queryTimer;
+    private final Counter droppedCounter;
+
+    private MessageIndex index;
+    private Thread indexer;
+    private volatile boolean running;
+    private volatile boolean backfillComplete;
+    // Set once a message was dropped; freezes the checkpoint until the next start's backfill
+    private volatile boolean incomplete;
+    // Guarded by this
+    private long checkpoint;
+
+    public MessageSearchService(
+            JdbcTemplate jdbcTemplate,
+            MessageRepository messageRepository,
+            ParticipantRepository participantRepository,
+            MessageArchive messageArchive,
+            MeterRegistry meterRegistry,
+            @Value("${chat.search.enabled:true}") boolean enabled,
+            @Value("${chat.search.dir:/var/lib/chat/search}") String directory,
+            @Value("${chat.search.refresh-interval-ms:1000}") long refreshIntervalMs,
+            @Value("${chat.search.merge-factor:10}") int mergeFactor,
+            @Value("${chat.search.max-merged-docs:5000000}") int maxMergedDocs,
+            @Value("${chat.search.flush-docs:50000}") int flushDocs,
+            @Value("${chat.search.backfill-batch-size:1000}") int backfillBatchSize,
+            @Value("${chat.search.queue-capacity:100000}") int queueCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.messageRepository = messageRepository;
+        this.participantRepository = participantRepository;
+        this.messageArchive = messageArchive;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(refreshIntervalMs);
+        this.mergeFactor = mergeFactor;
+        this.maxMergedDocs = maxMergedDocs;
+        this.flushDocs = flushDocs;
+        this.backfillBatchSize = backfillBatchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queryTimer = Timer.builder("chat.search.query")
+                .description("Latency of message search queries")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("chat.search.dropped")
+                .description("Messages that could not be queued or written for indexing")
+                .register(meterRegistry);
+        Gauge.builder("chat.search.queue.depth", queue, BlockingQueue::size)
+                .description("Messages waiting to be indexed")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            index = new MessageIndex(directory, mergeFactor, maxMergedDocs);
+            checkpoint = readCheckpoint();
+        } catch (IOException | RuntimeException e) {
+            log.error("Error opening the message search index in {}, search disabled", directory, e);
+            index = null;
+            return;
+        }
+        MessageIndex opened = index;
+        Gauge.builder("chat.search.segments", opened, MessageIndex::segmentCount)
+                .description("Segments of the message search index")
+                .register(meterRegistry);
+        Gauge.builder("chat.search.documents", opened, MessageIndex::docCount)
+                .description("Messages in the search index")
+                .register(meterRegistry);
+
+        running = true;
+        indexer = new Thread(this::runIndexer, "search-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+        log.info("Message search index opened with {} segments ({} messages, checkpoint {})",
+                opened.segmentCount(), opened.docCount(), checkpoint);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (indexer == null) {
+            return;
+        }
+        running = false;
+        indexer.join(TimeUnit.SECONDS.toMillis(10));
+        merger.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (index == null) {
+            return;
+        }
+        Thread backfill = new Thread(this::backfill, "search-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    public boolean isEnabled() {
+        return index != null;
+    }
+
+    /** Queues a delivered message for indexing; called for local and relayed messages alike. */
+    public void onMessage(ChatMessageDTO message) {
+        if (index == null || message.getId() == null || message.getContent() == null) {
+            return;
+        }
+        if (!queue.offer(new IndexRequest(message.getId(), message.getChatRoomId(), message.getContent()))) {
+            incomplete = true;
+            droppedCounter.increment();
+        }
+    }
+
+    /**
+     * Searches the messages of the user's rooms, or of {@code roomId} only, for messages
+     * containing every term of {@code query}, best match first. Scores depend on the whole index,
+     * so pages requested while it grows may overlap slightly.
+     */
+    public MessageSearchPage search(Long userId, String query, Long roomId, String cursor, int limit) {
+        MessageIndex current = index;
+        if (current == null) {
+            throw new IllegalStateException("Message search is disabled");
+        }
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Empty search query");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        MessageIndex.Hit after = cursor != null ? parseCursor(cursor) : null;
+
+        LongPredicate rooms;
+        if (roomId != null) {
+            long room = roomId;
+            rooms = candidate -> candidate == room;
+        } else {
+            List<Long> roomIds = participantRepository.findChatRoomIdsByUserId(userId);
+            LongHashSet memberOf = new LongHashSet(roomIds.size());
+            roomIds.forEach(memberOf::add);
+            rooms = memberOf::contains;
+        }
+
+        List<MessageIndex.Hit> hits = queryTimer.record(() -> current.search(query, rooms, after, pageSize + 1));
+        boolean hasMore = hits.size() > pageSize;
+        List<MessageIndex.Hit> page = hasMore ? hits.subList(0, pageSize) : hits;
+
+        Map<Long, Message> found = new HashMap<>(page.size() * 2);
+        messageRepository.findAllById(page.stream().map(MessageIndex.Hit::messageId).toList())
+                .forEach(message -> found.put(message.getId(), message));
+        List<ChatMessageDTO> messages = new ArrayList<>(page.size());
+        for (MessageIndex.Hit hit : page) {
+            Message message = found.get(hit.messageId());
+            if (message == null) {
+                // Moved to an archived partition since it was indexed
+                message = messageArchive.findById(hit.roomId(), hit.messageId()).orElse(null);
+            }
+            if (message != null) {
+                messages.add(ChatService.toDTO(message));
+            }
+        }
+
+        String nextCursor = hasMore ? formatCursor(page.get(page.size() - 1)) : null;
+        return new MessageSearchPage(messages, nextCursor, hasMore);
+    }
+
+    private void runIndexer() {
+        SegmentBuilder builder = new SegmentBuilder();
+        List<IndexRequest> drained = new ArrayList<>(1024);
+        long nextRefresh = System.nanoTime() + refreshIntervalNanos;
+        long previousFlushMax = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                IndexRequest first = queue.poll(Math.max(0, nextRefresh - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    drained.add(first);
+                    queue.drainTo(drained, 1023);
+                    for (IndexRequest request : drained) {
+                        builder.add(request.messageId(), request.roomId(), request.content());
+                    }
+                    drained.clear();
+                }
+                if (System.nanoTime() < nextRefresh && builder.docCount() < flushDocs && running) {
+                    continue;
+                }
+                nextRefresh = System.nanoTime() + refreshIntervalNanos;
+                if (builder.isEmpty()) {
+                    continue;
+                }
+                long flushedMax = builder.maxMessageId();
+                if (flush(builder) && backfillComplete && !incomplete) {
+                    advanceCheckpoint(previousFlushMax);
+                }
+                previousFlushMax = Math.max(previousFlushMax, flushedMax);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+        if (!builder.isEmpty()) {
+            flush(builder);
+        }
+    }
+
+    private void backfill() {
+        long start = System.nanoTime();
+        long from;
+        synchronized (this) {
+            from = checkpoint;
+        }
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM messages", Long.class);
+            long to = maxId != null ? maxId : 0;
+            SegmentBuilder builder = new SegmentBuilder();
+            long indexed = 0;
+
+            if (from == 0) {
+                // Nothing indexed yet, so archived partitions have to be covered too
+                long[] archived = {0};
+                messageArchive.forEachArchived(message -> {
+                    builder.add(message.getId(), message.getChatRoomId(), message.getContent());
+                    archived[0]++;
+                    if (builder.docCount() >= flushDocs) {
+                        flushBackfill(builder);
+                    }
+                });
+                indexed += archived[0];
+            }
+
+            long position = from;
+            while (position < to) {
+                List<IndexRequest> rows = jdbcTemplate.query(BACKFILL_PAGE,
+                        (rs, rowNum) -> new IndexRequest(rs.getLong(1), rs.getLong(2), rs.getString(3)),
+                        position, to, backfillBatchSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (IndexRequest row : rows) {
+                    builder.add(row.messageId(), row.roomId(), row.content());
+                }
+                position = rows.get(rows.size() - 1).messageId();
+                indexed += rows.size();
+                if (builder.docCount() >= flushDocs) {
+                    flushBackfill(builder);
+                    advanceCheckpoint(position);
+                }
+            }
+            flushBackfill(builder);
+            advanceCheckpoint(to);
+            backfillComplete = true;
+            if (indexed > 0) {
+                log.info("Backfilled {} messages into the search index in {} ms",
+                        indexed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        } catch (Exception e) {
+            // The checkpoint only covers completed flushes, so the next start resumes from there
+            log.error("Error backfilling the message search index", e);
+        }
+    }
+
+    /** Writes the builder as a new segment; returns false if its messages were dropped instead. */
+    private boolean flush(SegmentBuilder builder) {
+        int documents = builder.docCount();
+        try {
+            index.flush(builder);
+            merger.execute(this::merge);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Error writing {} messages to the search index", documents, e);
+            builder.clear();
+            incomplete = true;
+            droppedCounter.increment(documents);
+            return false;
+        }
+    }
+
+    /** Flushes a backfill batch, aborting the backfill before its checkpoint moves past lost rows. */
+    private void flushBackfill(SegmentBuilder builder) {
+        if (!flush(builder)) {
+            throw new IllegalStateException("Search index backfill aborted after a failed segment write");
+        }
+    }
+
+    private void merge() {
+        try {
+            while (running && index.maybeMerge()) {
+                // Keep merging while a level is full
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Error merging message search index segments", e);
+        }
+    }
+
+    private synchronized void advanceCheckpoint(long messageId) {
+        if (messageId <= checkpoint) {
+            return;
+        }
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try {
+            Files.writeString(temp, Long.toString(messageId), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            checkpoint = messageId;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing the search index checkpoint", e);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim());
+    }
+
+    /** Keyset position "{score}_{messageId}" of the last hit on a page. */
+    private static MessageIndex.Hit parseCursor(String value) {
+        int separator = value.lastIndexOf('_');
+        try {
+            return new MessageIndex.Hit(Long.parseLong(value.substring(separator + 1)), 0,
+                    Double.parseDouble(value.substring(0, separator)));
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+    }
+
+    private static String formatCursor(MessageIndex.Hit hit) {
+        return Double.toString(hit.score()) + '_' + hit.messageId();
+    }
+
+    private record IndexRequest(long messageId, long roomId, String content) {
+    }
+}
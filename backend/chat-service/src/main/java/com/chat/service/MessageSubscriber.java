@@ -0,0 +1,45 @@
+package com.chat.service;
+
+import com.chat.config.NodeIdentity;
+import com.chat.dto.ChatMessageDTO;
+import com.chat.dto.ClusterMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSubscriber {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final LocalSubscriptionRegistry subscriptionRegistry;
+    private final NodeIdentity nodeIdentity;
+    private final RecentMessageCache recentMessageCache;
+    private final MessagePipelineMetrics pipelineMetrics;
+    private final MessageSearchService messageSearchService;
+    private final ReceiptService receiptService;
+
+    public void onMessage(ClusterMessage clusterMessage) {
+        // Messages sent from this node were already delivered locally by WebSocketController
+        if (nodeIdentity.getNodeId().equals(clusterMessage.getOriginNodeId())) {
+            return;
+        }
+
+        ChatMessageDTO message = clusterMessage.getMessage();
+        recentMessageCache.append(message);
+        messageSearchService.onMessage(message);
+
+        String destination = "/topic/messages/" + message.getChatRoomId();
+        if (!subscriptionRegistry.hasSubscribers(destination)) {
+            return;
+        }
+
+        receiptService.onMessageDelivered(message.getChatRoomId(), message.getId());
+        log.debug("Relaying message from node {}: {}", clusterMessage.getOriginNodeId(), message);
+        long dispatchStart = System.nanoTime();
+        messagingTemplate.convertAndSend(destination, message);
+        pipelineMetrics.recordRelayDispatch(dispatchStart);
+    }
+}
@@ -0,0 +1,423 @@
+package com.chat.service;
+
+import com.chat.config.NodeIdentity;
+import com.chat.dto.ChatMessageDTO;
+import com.chat.dto.MessagePage;
+import com.chat.dto.ReceiptUpdateDTO;
+import com.chat.model.ReadReceipt;
+import com.chat.repository.ReadReceiptRepository;
+import com.chat.util.LongHashSet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivery and read receipts kept as per-(user, room) watermarks instead of per-message status
+ * updates. Acks only ever move a watermark forward; advanced watermarks are broadcast per room
+ * once per {@code broadcast-interval-ms} (to local subscribers and, over Redis, to the other
+ * nodes) and written to {@code read_receipts} in one batched upsert per {@code flush-interval-ms}.
+ * <p>
+ * The status of a message is derived on read: it is "delivered" or "read" once every other
+ * participant's watermark has reached it.
+ * <p>
+ * Acks are clamped to the newest message of the room this node knows of, taken from
+ * {@code room_summary} when the room is loaded and advanced by {@link #onMessageDelivered} before
+ * each message is pushed to local subscribers, so an ack for an id the room does not have yet
+ * cannot move a watermark past messages sent later.
+ */
+@Service
+@Slf4j
+public class ReceiptService implements MessageListener {
+
+    private static final String UPSERT = "INSERT INTO read_receipts "
+            + "(user_id, chat_room_id, delivered_message_id, read_message_id, updated_at) VALUES (?, ?, ?, ?, ?) "
+            + "ON CONFLICT (user_id, chat_room_id) DO UPDATE SET "
+            + "delivered_message_id = GREATEST(read_receipts.delivered_message_id, EXCLUDED.delivered_message_id), "
+            + "read_message_id = GREATEST(read_receipts.read_message_id, EXCLUDED.read_message_id), "
+            + "updated_at = EXCLUDED.updated_at";
+    private static final String LATEST_MESSAGE = "SELECT last_message_id FROM room_summary WHERE chat_room_id = ?";
+    private static final Watermark NONE = new Watermark(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadReceiptRepository readReceiptRepository;
+    private final RoomMembershipIndex roomMembershipIndex;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final LocalSubscriptionRegistry subscriptionRegistry;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ChannelTopic receiptTopic;
+    private final NodeIdentity nodeIdentity;
+    private final ObjectMapper objectMapper;
+    private final long broadcastIntervalMs;
+    private final long flushIntervalMs;
+    private final int maxRooms;
+
+    // Watermarks of recently active rooms, loaded from the database on first use. The flusher
+    // trims it back to max-rooms, so it may run over by the rooms first touched within one flush.
+    private final Map<Long, RoomWatermarks> rooms = new ConcurrentHashMap<>();
+    // Advanced since the last flush; survives eviction of the room from the cache above
+    private final Map<ReceiptKey, Watermark> unflushed = new ConcurrentHashMap<>();
+    // Room id -> users whose watermark advanced since the last broadcast
+    private final Map<Long, Set<Long>> unbroadcast = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService ticker;
+
+    public ReceiptService(
+            JdbcTemplate jdbcTemplate,
+            ReadReceiptRepository readReceiptRepository,
+            RoomMembershipIndex roomMembershipIndex,
+            SimpMessagingTemplate messagingTemplate,
+            LocalSubscriptionRegistry subscriptionRegistry,
+            StringRedisTemplate stringRedisTemplate,
+            ChannelTopic receiptTopic,
+            NodeIdentity nodeIdentity,
+            ObjectMapper objectMapper,
+            @Value("${chat.receipts.broadcast-interval-ms:250}") long broadcastIntervalMs,
+            @Value("${chat.receipts.flush-interval-ms:2000}") long flushIntervalMs,
+            @Value("${chat.receipts.max-rooms:100000}") int maxRooms) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readReceiptRepository = readReceiptRepository;
+        this.roomMembershipIndex = roomMembershipIndex;
+        this.messagingTemplate = messagingTemplate;
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.receiptTopic = receiptTopic;
+        this.nodeIdentity = nodeIdentity;
+        this.objectMapper = objectMapper;
+        this.broadcastIntervalMs = broadcastIntervalMs;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxRooms = maxRooms;
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "receipt-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::broadcast, broadcastIntervalMs, broadcastIntervalMs, TimeUnit.MILLISECONDS);
+        ticker.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        ticker.shutdown();
+        ticker.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    /**
+     * Records that {@code userId} has received, or read, every message in the room up to and
+     * including {@code messageId}. Reading implies delivery.
+     *
+     * @return whether this ack moved the user's read watermark up to the newest message of the
+     *         room, i.e. the user has now caught up on the room
+     */
+    public boolean onAck(Long roomId, Long userId, long messageId, boolean read) {
+        RoomWatermarks room = roomWatermarks(roomId);
+        long latest = room.latestMessageId.get();
+        long acked = Math.min(messageId, latest);
+        if (acked <= 0) {
+            return false;
+        }
+        Watermark ack = new Watermark(acked, read ? acked : 0);
+        Watermark before = room.users.get(userId);
+        Watermark after = room.users.merge(userId, ack, Watermark::max);
+        if (after.equals(before)) {
+            return false;
+        }
+        unflushed.merge(new ReceiptKey(roomId, userId), ack, Watermark::max);
+        unbroadcast.computeIfAbsent(roomId, id -> ConcurrentHashMap.newKeySet()).add(userId);
+        boolean readAdvanced = before == null || after.read() > before.read();
+        return read && readAdvanced && after.read() >= latest;
+    }
+
+    /** Records that {@code messageId} is about to be delivered to subscribers of the room on this node. */
+    public void onMessageDelivered(Long roomId, long messageId) {
+        roomWatermarks(roomId).latestMessageId.accumulateAndGet(messageId, Math::max);
+    }
+
+    public List<ReceiptUpdateDTO.Receipt> getReceipts(Long roomId) {
+        List<ReceiptUpdateDTO.Receipt> receipts = new ArrayList<>();
+        roomWatermarks(roomId).users.forEach((userId, watermark) -> receipts.add(watermark.toReceipt(userId)));
+        return receipts;
+    }
+
+    /**
+     * Returns the page with each message's status derived from the room's watermarks. Messages
+     * whose status changes are copied, since cached pages share their message objects.
+     */
+    public MessagePage withStatus(Long roomId, MessagePage page) {
+        if (page.getMessages().isEmpty()) {
+            return page;
+        }
+        Map<Long, Watermark> room = roomWatermarks(roomId).users;
+        LowestTwo delivered = new LowestTwo();
+        LowestTwo read = new LowestTwo();
+        LongHashSet members = roomMembershipIndex.getMembers(roomId);
+        members.forEach(userId -> {
+            Watermark watermark = room.getOrDefault(userId, NONE);
+            delivered.add(userId, watermark.delivered());
+            read.add(userId, watermark.read());
+        });
+
+        List<ChatMessageDTO> messages = new ArrayList<>(page.getMessages().size());
+        for (ChatMessageDTO message : page.getMessages()) {
+            String status = status(message, delivered, read);
+            if (status.equals(message.getStatus())) {
+                messages.add(message);
+            } else {
+                messages.add(new ChatMessageDTO(message.getId(), message.getChatRoomId(), message.getSenderId(),
+                        message.getSenderName(), message.getContent(), message.getTimestamp(), status,
+                        message.getType()));
+            }
+        }
+        return new MessagePage(messages, page.getNextCursor(), page.isHasMore());
+    }
+
+    private static String status(ChatMessageDTO message, LowestTwo delivered, LowestTwo read) {
+        if (message.getId() == null || message.getSenderId() == null) {
+            return message.getStatus();
+        }
+        long othersRead = read.excluding(message.getSenderId());
+        if (othersRead == Long.MAX_VALUE) {
+            // Nobody else in the room
+            return message.getStatus();
+        }
+        if (message.getId() <= othersRead) {
+            return "read";
+        }
+        if (message.getId() <= delivered.excluding(message.getSenderId())) {
+            return "delivered";
+        }
+        return "sent";
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // "<origin node id> <json>"
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(' ');
+        if (separator < 0 || nodeIdentity.getNodeId().equals(body.substring(0, separator))) {
+            return;
+        }
+        try {
+            ReceiptUpdateDTO update = objectMapper.readValue(body.substring(separator + 1), ReceiptUpdateDTO.class);
+            RoomWatermarks room = rooms.get(update.getChatRoomId());
+            if (room != null) {
+                for (ReceiptUpdateDTO.Receipt receipt : update.getReceipts()) {
+                    room.users.merge(receipt.getUserId(), Watermark.of(receipt), Watermark::max);
+                }
+            }
+            String destination = "/topic/receipts/" + update.getChatRoomId();
+            if (subscriptionRegistry.hasSubscribers(destination)) {
+                messagingTemplate.convertAndSend(destination, update);
+            }
+        } catch (Exception e) {
+            log.error("Error relaying receipts from another node", e);
+        }
+    }
+
+    private RoomWatermarks roomWatermarks(Long roomId) {
+        RoomWatermarks room = rooms.get(roomId);
+        if (room != null) {
+            room.lastAccessMillis = System.currentTimeMillis();
+            return room;
+        }
+
+        RoomWatermarks loaded = new RoomWatermarks();
+        for (ReadReceipt receipt : readReceiptRepository.findByChatRoomId(roomId)) {
+            loaded.users.put(receipt.getUserId(), new Watermark(receipt.getDeliveredMessageId(), receipt.getReadMessageId()));
+        }
+        // Acks that are not in the database yet, e.g. when the room was evicted before a flush
+        unflushed.forEach((key, watermark) -> {
+            if (key.roomId().equals(roomId)) {
+                loaded.users.merge(key.userId(), watermark, Watermark::max);
+            }
+        });
+        List<Long> latest = jdbcTemplate.queryForList(LATEST_MESSAGE, Long.class, roomId);
+        if (!latest.isEmpty() && latest.get(0) != null) {
+            loaded.latestMessageId.set(latest.get(0));
+        }
+
+        RoomWatermarks existing = rooms.putIfAbsent(roomId, loaded);
+        if (existing == null) {
+            return loaded;
+        }
+        // Lost a race with another loader; watermarks only move forward, so merging is safe
+        loaded.users.forEach((userId, watermark) -> existing.users.merge(userId, watermark, Watermark::max));
+        existing.latestMessageId.accumulateAndGet(loaded.latestMessageId.get(), Math::max);
+        return existing;
+    }
+
+    /**
+     * Drops the least recently used rooms beyond {@code max-rooms}, skipping rooms with acks that
+     * are not yet written or broadcast. Runs on the flusher thread after a flush.
+     */
+    private void evictIdleRooms() {
+        int excess = rooms.size() - maxRooms;
+        if (excess <= 0) {
+            return;
+        }
+        Set<Long> pending = new HashSet<>(unbroadcast.keySet());
+        for (ReceiptKey key : unflushed.keySet()) {
+            pending.add(key.roomId());
+        }
+        List<Map.Entry<Long, RoomWatermarks>> idle = new ArrayList<>(rooms.size());
+        for (Map.Entry<Long, RoomWatermarks> entry : rooms.entrySet()) {
+            if (!pending.contains(entry.getKey())) {
+                idle.add(entry);
+            }
+        }
+        idle.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccessMillis));
+        // A room acked after this snapshot can still be dropped; its ack stays in unflushed and is
+        // merged back when the room is loaded again
+        for (int i = 0; i < Math.min(excess, idle.size()); i++) {
+            rooms.remove(idle.get(i).getKey(), idle.get(i).getValue());
+        }
+    }
+
+    private void broadcast() {
+        try {
+            Iterator<Map.Entry<Long, Set<Long>>> iterator = unbroadcast.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Set<Long>> entry = iterator.next();
+                iterator.remove();
+                Long roomId = entry.getKey();
+                RoomWatermarks room = rooms.get(roomId);
+                List<ReceiptUpdateDTO.Receipt> receipts = new ArrayList<>(entry.getValue().size());
+                for (Long userId : entry.getValue()) {
+                    Watermark watermark = room != null ? room.users.get(userId) : unflushed.get(new ReceiptKey(roomId, userId));
+                    if (watermark != null) {
+                        receipts.add(watermark.toReceipt(userId));
+                    }
+                }
+                if (!receipts.isEmpty()) {
+                    send(new ReceiptUpdateDTO(roomId, receipts));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error broadcasting receipts", e);
+        }
+    }
+
+    private void send(ReceiptUpdateDTO update) {
+        String destination = "/topic/receipts/" + update.getChatRoomId();
+        if (subscriptionRegistry.hasSubscribers(destination)) {
+            messagingTemplate.convertAndSend(destination, update);
+        }
+        try {
+            stringRedisTemplate.convertAndSend(receiptTopic.getTopic(),
+                    nodeIdentity.getNodeId() + ' ' + objectMapper.writeValueAsString(update));
+        } catch (Exception e) {
+            log.error("Error publishing receipts for room {}", update.getChatRoomId(), e);
+        }
+    }
+
+    private void flush() {
+        writeUnflushed();
+        evictIdleRooms();
+    }
+
+    private void writeUnflushed() {
+        if (unflushed.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<ReceiptKey> keys = new ArrayList<>();
+        List<Watermark> watermarks = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<ReceiptKey, Watermark> entry : unflushed.entrySet()) {
+            // A concurrent ack replaces the value and keeps the entry for the next flush
+            if (unflushed.remove(entry.getKey(), entry.getValue())) {
+                ReceiptKey key = entry.getKey();
+                Watermark watermark = entry.getValue();
+                keys.add(key);
+                watermarks.add(watermark);
+                rows.add(new Object[] {key.userId(), key.roomId(), watermark.delivered(), watermark.read(), now});
+            }
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+        } catch (Exception e) {
+            log.error("Error flushing {} receipt watermarks", rows.size(), e);
+            for (int i = 0; i < keys.size(); i++) {
+                unflushed.merge(keys.get(i), watermarks.get(i), Watermark::max);
+            }
+        }
+    }
+
+    private record ReceiptKey(Long roomId, Long userId) {
+    }
+
+    private static final class RoomWatermarks {
+        private final Map<Long, Watermark> users = new ConcurrentHashMap<>();
+        // Newest message of the room known to this node; acks are clamped to it
+        private final AtomicLong latestMessageId = new AtomicLong();
+        private volatile long lastAccessMillis = System.currentTimeMillis();
+    }
+
+    private record Watermark(long delivered, long read) {
+
+        static Watermark of(ReceiptUpdateDTO.Receipt receipt) {
+            return new Watermark(receipt.getDeliveredUpTo(), receipt.getReadUpTo());
+        }
+
+        Watermark max(Watermark other) {
+            if (other.delivered <= delivered && other.read <= read) {
+                return this;
+            }
+            return new Watermark(Math.max(delivered, other.delivered), Math.max(read, other.read));
+        }
+
+        ReceiptUpdateDTO.Receipt toReceipt(Long userId) {
+            return new ReceiptUpdateDTO.Receipt(userId, delivered, read);
+        }
+    }
+
+    /** Smallest watermark in the room, and the next smallest for when the owner is excluded. */
+    private static final class LowestTwo {
+        private long lowest = Long.MAX_VALUE;
+        private long lowestOwner;
+        private long second = Long.MAX_VALUE;
+
+        void add(long userId, long value) {
+            if (value < lowest) {
+                second = lowest;
+                lowest = value;
+                lowestOwner = userId;
+            } else if (value < second) {
+                second = value;
+            }
+        }
+
+        long excluding(long userId) {
+            return lowestOwner == userId && lowest != Long.MAX_VALUE ? second : lowest;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.chat.service;
+
+import com.chat.dto.ChatMessageDTO;
+import com.chat.dto.MessagePage;
+import com.chat.util.LongHashSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the most recent messages of active rooms in per-room ring buffers so the latest history
+ * pages can be served without touching Postgres. Rooms are split over lock stripes by room id,
+ * each with an equal share of the byte budget; within a stripe, rooms are evicted
+ * least-recently-used once its buffers exceed that share.
+ * <p>
+ * Cached messages carry what is stored in the database, so a page reads the same whether it is
+ * served from here or from Postgres; in particular, sender names are not kept.
+ */
+@Service
+public class RecentMessageCache {
+
+    // Rough per-message overhead: DTO object, boxed ids, enum reference and string headers
+    private static final long MESSAGE_OVERHEAD_BYTES = 160;
+    private static final int STRIPE_BITS = 4;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    private final int messagesPerRoom;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Counter hits;
+    private final Counter misses;
+
+    public RecentMessageCache(
+            MeterRegistry meterRegistry,
+            @Value("${chat.cache.recent-messages.per-room:100}") int messagesPerRoom,
+            @Value("${chat.cache.recent-messages.max-bytes:67108864}") long maxBytes) {
+        this.messagesPerRoom = messagesPerRoom;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(maxBytes / STRIPES);
+        }
+        this.hits = Counter.builder("chat.cache.recent-messages.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("chat.cache.recent-messages.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("chat.cache.recent-messages.bytes", this, RecentMessageCache::estimatedBytes).register(meterRegistry);
+        Gauge.builder("chat.cache.recent-messages.rooms", this, RecentMessageCache::roomCount).register(meterRegistry);
+    }
+
+    public int getMessagesPerRoom() {
+        return messagesPerRoom;
+    }
+
+    /**
+     * Returns the page of up to {@code limit} messages older than {@code before} (or the latest page
+     * when {@code before} is null), or null if the cached window cannot answer it exactly.
+     */
+    public MessagePage getPage(Long roomId, Long before, int limit) {
+        MessagePage page;
+        Stripe stripe = stripe(roomId);
+        synchronized (stripe) {
+            RoomBuffer buffer = stripe.rooms.get(roomId);
+            page = buffer == null || buffer.loading ? null : buffer.page(before, limit);
+        }
+        (page == null ? misses : hits).increment();
+        return page;
+    }
+
+    /**
+     * Registers a room whose recent history is about to be read from the database. Messages
+     * appended while the read is in flight are kept and merged by {@link #completeLoad}.
+     */
+    public Object beginLoad(Long roomId) {
+        Stripe stripe = stripe(roomId);
+        synchronized (stripe) {
+            RoomBuffer buffer = stripe.rooms.get(roomId);
+            if (buffer == null) {
+                buffer = new RoomBuffer(messagesPerRoom);
+                stripe.rooms.put(roomId, buffer);
+            }
+            return buffer.loading ? buffer : null;
+        }
+    }
+
+    /**
+     * Installs the latest messages of a room, oldest first. {@code complete} marks that the list
+     * holds the room's entire history. Ids are assigned before commit, so a message appended during
+     * the load may be older than the newest one read and still missing from {@code latest}; the
+     * window would then have a gap, and the room is left uncached instead.
+     */
+    public void completeLoad(Long roomId, Object loadToken, List<ChatMessageDTO> latest, boolean complete) {
+        Stripe stripe = stripe(roomId);
+        synchronized (stripe) {
+            RoomBuffer pending = stripe.rooms.get(roomId);
+            if (pending == null || pending != loadToken) {
+                return;
+            }
+
+            RoomBuffer buffer = new RoomBuffer(messagesPerRoom);
+            buffer.loading = false;
+            buffer.complete = complete;
+            int start = Math.max(0, latest.size() - messagesPerRoom);
+            if (start > 0) {
+                buffer.complete = false;
+            }
+            for (int i = start; i < latest.size(); i++) {
+                buffer.add(latest.get(i));
+            }
+            long lastId = buffer.size > 0 ? buffer.get(buffer.size - 1).getId() : Long.MIN_VALUE;
+            LongHashSet loadedIds = null;
+            for (int i = 0; i < pending.size; i++) {
+                ChatMessageDTO message = pending.get(i);
+                if (message.getId() > lastId) {
+                    buffer.add(message);
+                    continue;
+                }
+                if (loadedIds == null) {
+                    loadedIds = new LongHashSet(latest.size());
+                    for (ChatMessageDTO loaded : latest) {
+                        loadedIds.add(loaded.getId());
+                    }
+                }
+                if (!loadedIds.contains(message.getId())) {
+                    // Committed after the read saw a newer message; the window would have a gap
+                    stripe.invalidate(roomId);
+                    return;
+                }
+            }
+
+            stripe.totalBytes += buffer.bytes - pending.bytes;
+            stripe.rooms.put(roomId, buffer);
+            stripe.evictIfNeeded();
+        }
+    }
+
+    public void append(ChatMessageDTO message) {
+        Long roomId = message.getChatRoomId();
+        Stripe stripe = stripe(roomId);
+        synchronized (stripe) {
+            RoomBuffer buffer = stripe.rooms.get(roomId);
+            if (buffer == null) {
+                return;
+            }
+            if (buffer.size > 0 && message.getId() <= buffer.get(buffer.size - 1).getId()) {
+                // Out-of-order delivery across nodes; drop the room rather than serve a gapped window
+                stripe.invalidate(roomId);
+                return;
+            }
+            long before = buffer.bytes;
+            buffer.add(asStored(message));
+            stripe.totalBytes += buffer.bytes - before;
+            stripe.evictIfNeeded();
+        }
+    }
+
+    public void invalidate(Long roomId) {
+        Stripe stripe = stripe(roomId);
+        synchronized (stripe) {
+            stripe.invalidate(roomId);
+        }
+    }
+
+    public long estimatedBytes() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.totalBytes;
+            }
+        }
+        return total;
+    }
+
+    public int roomCount() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.rooms.size();
+            }
+        }
+        return total;
+    }
+
+    private Stripe stripe(Long roomId) {
+        long h = roomId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> (64 - STRIPE_BITS))];
+    }
+
+    /** Returns the message without the fields that history read from the database lacks. */
+    private static ChatMessageDTO asStored(ChatMessageDTO message) {
+        if (message.getSenderName() == null) {
+            return message;
+        }
+        return new ChatMessageDTO(message.getId(), message.getChatRoomId(), message.getSenderId(), null,
+                message.getContent(), message.getTimestamp(), message.getStatus(), message.getType());
+    }
+
+    private static final class Stripe {
+        private final long maxBytes;
+        private final LinkedHashMap<Long, RoomBuffer> rooms = new LinkedHashMap<>(64, 0.75f, true);
+        private long totalBytes;
+
+        private Stripe(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private void invalidate(Long roomId) {
+            RoomBuffer removed = rooms.remove(roomId);
+            if (removed != null) {
+                totalBytes -= removed.bytes;
+            }
+        }
+
+        private void evictIfNeeded() {
+            Iterator<Map.Entry<Long, RoomBuffer>> eldest = rooms.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().bytes;
+                eldest.remove();
+            }
+        }
+    }
+
+    static long estimateBytes(ChatMessageDTO message) {
+        return MESSAGE_OVERHEAD_BYTES
+                + 2L * (length(message.getContent()) + length(message.getSenderName())
+                + length(message.getTimestamp()) + length(message.getStatus()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static final class RoomBuffer {
+        private final ChatMessageDTO[] ring;
+        private int head;
+        private int size;
+        private long bytes;
+        private boolean loading = true;
+        private boolean complete = true;
+
+        private RoomBuffer(int capacity) {
+            this.ring = new ChatMessageDTO[capacity];
+        }
+
+        private ChatMessageDTO get(int index) {
+            return ring[(head + index) % ring.length];
+        }
+
+        private void add(ChatMessageDTO message) {
+            if (size == ring.length) {
+                bytes -= estimateBytes(ring[head]);
+                ring[head] = message;
+                head = (head + 1) % ring.length;
+                // The oldest message has been dropped, so the window no longer starts at the beginning
+                complete = false;
+            } else {
+                ring[(head + size) % ring.length] = message;
+                size++;
+            }
+            bytes += estimateBytes(message);
+        }
+
+        private MessagePage page(Long before, int limit) {
+            // Number of cached messages older than the cursor
+            int end = size;
+            if (before != null) {
+                while (end > 0 && get(end - 1).getId() >= before) {
+                    end--;
+                }
+            }
+
+            boolean hasMore;
+            if (end > limit) {
+                hasMore = true;
+            } else if (complete) {
+                hasMore = false;
+            } else {
+                return null;
+            }
+
+            int start = Math.max(0, end - limit);
+            List<ChatMessageDTO> messages = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                messages.add(get(i));
+            }
+            Long nextCursor = hasMore ? messages.get(0).getId() : null;
+            return new MessagePage(messages, nextCursor, hasMore);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.chat.service;
+
+import com.chat.model.Participant;
+import com.chat.repository.ParticipantRepository;
+import com.chat.util.LongHashSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process index of room participants, loaded lazily from {@link ParticipantRepository}.
+ * Membership changes are invalidated locally and broadcast to the other chat-service nodes
+ * over Redis.
+ */
+@Service
+@Slf4j
+public class RoomMembershipIndex implements MessageListener {
+
+    private final ParticipantRepository participantRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ChannelTopic membershipTopic;
+    private final int maxRooms;
+    private final Map<Long, LongHashSet> members = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so loads that raced with one are not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public RoomMembershipIndex(
+            ParticipantRepository participantRepository,
+            StringRedisTemplate stringRedisTemplate,
+            ChannelTopic membershipTopic,
+            @Value("${chat.membership.max-rooms:100000}") int maxRooms) {
+        this.participantRepository = participantRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.membershipTopic = membershipTopic;
+        this.maxRooms = maxRooms;
+    }
+
+    public boolean isMember(Long roomId, Long userId) {
+        if (roomId == null || userId == null) {
+            return false;
+        }
+        return getMembers(roomId).contains(userId);
+    }
+
+    public LongHashSet getMembers(Long roomId) {
+        LongHashSet roomMembers = members.get(roomId);
+        if (roomMembers != null) {
+            return roomMembers;
+        }
+
+        long loadGeneration = generation.get();
+        List<Participant> participants = participantRepository.findByChatRoomId(roomId);
+        roomMembers = new LongHashSet(participants.size());
+        for (Participant participant : participants) {
+            roomMembers.add(participant.getUserId());
+        }
+
+        if (members.size() >= maxRooms) {
+            Iterator<Long> iterator = members.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        members.put(roomId, roomMembers);
+        if (generation.get() != loadGeneration) {
+            members.remove(roomId, roomMembers);
+        }
+        return roomMembers;
+    }
+
+    /**
+     * Drops the room from this node's index once the current transaction commits and tells the
+     * other nodes to do the same.
+     */
+    public void invalidateAfterCommit(Long roomId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(roomId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(roomId);
+            }
+        });
+    }
+
+    public void invalidate(Long roomId) {
+        invalidateLocally(roomId);
+        try {
+            stringRedisTemplate.convertAndSend(membershipTopic.getTopic(), roomId.toString());
+        } catch (Exception e) {
+            log.error("Error publishing membership invalidation for room {}", roomId, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidateLocally(Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8)));
+    }
+
+    private void invalidateLocally(Long roomId) {
+        generation.incrementAndGet();
+        members.remove(roomId);
+    }
+}
@@ -0,0 +1,256 @@
+package com.chat.service;
+
+import com.chat.dto.RoomSummaryDTO;
+import com.chat.dto.RoomSummaryPage;
+import com.chat.model.ChatRoom;
+import com.chat.model.Message;
+import com.chat.model.RoomSummary;
+import com.chat.repository.RoomSummaryRepository;
+import com.chat.util.LongHashSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the {@code room_summary} projection and serves a user's rooms from it, most
+ * recently active first, with keyset pagination on (last activity, room id).
+ * <p>
+ * Each user's first page is cached, for up to {@code max-cached-users} users with the least
+ * recently used evicted first. A write to a room drops the cached pages of its members on this
+ * node and, over Redis, on the other nodes, so the next sidebar load reads the new order.
+ */
+@Service
+@Slf4j
+public class RoomSummaryService implements MessageListener {
+
+    public static final int MAX_PAGE_SIZE = 50;
+
+    private static final String UPDATE_LAST_MESSAGE = "UPDATE room_summary SET last_message_id = ?, "
+            + "last_sender_id = ?, last_message_preview = ?, last_activity_at = ? "
+            + "WHERE chat_room_id = ? AND (last_message_id IS NULL OR last_message_id < ?)";
+    // Creates rows for rooms that predate the projection
+    private static final String BACKFILL = "INSERT INTO room_summary (chat_room_id, name, type, participant_count, "
+            + "last_message_id, last_sender_id, last_message_preview, last_activity_at) "
+            + "SELECT r.id, r.name, r.type, "
+            + "(SELECT COUNT(*) FROM participants p WHERE p.chat_room_id = r.id), "
+            + "m.id, m.sender_id, LEFT(m.content, 200), COALESCE(m.timestamp, r.created_at) "
+            + "FROM chat_rooms r "
+            + "LEFT JOIN messages m ON m.id = (SELECT MAX(id) FROM messages WHERE chat_room_id = r.id) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM room_summary s WHERE s.chat_room_id = r.id)";
+    private static final int PREVIEW_LENGTH = 200;
+
+    private final RoomSummaryRepository roomSummaryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final RoomMembershipIndex roomMembershipIndex;
+    private final UnreadCounterService unreadCounterService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ChannelTopic roomSummaryTopic;
+
+    // User id -> first page, least recently used first; guarded by itself
+    private final LinkedHashMap<Long, FirstPage> firstPages;
+
+    public RoomSummaryService(
+            RoomSummaryRepository roomSummaryRepository,
+            JdbcTemplate jdbcTemplate,
+            RoomMembershipIndex roomMembershipIndex,
+            UnreadCounterService unreadCounterService,
+            StringRedisTemplate stringRedisTemplate,
+            ChannelTopic roomSummaryTopic,
+            @Value("${chat.room-summary.max-cached-users:10000}") int maxCachedUsers) {
+        this.roomSummaryRepository = roomSummaryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.roomMembershipIndex = roomMembershipIndex;
+        this.unreadCounterService = unreadCounterService;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.roomSummaryTopic = roomSummaryTopic;
+        this.firstPages = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, FirstPage> eldest) {
+                return size() > maxCachedUsers;
+            }
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            int created = jdbcTemplate.update(BACKFILL);
+            if (created > 0) {
+                log.info("Created {} missing room summaries", created);
+            }
+        } catch (Exception e) {
+            log.error("Error backfilling room summaries", e);
+        }
+    }
+
+    /** Creates the summary row within the room's transaction. */
+    public void onRoomCreated(ChatRoom room, int participantCount) {
+        roomSummaryRepository.save(new RoomSummary(room.getId(), room.getName(), room.getType(),
+                participantCount, null, null, null, room.getCreatedAt()));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(room.getId());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(room.getId());
+            }
+        });
+    }
+
+    /**
+     * Moves each room's summary to its newest message in the batch. Rows only move forward, so
+     * batches committed out of order cannot roll a summary back.
+     */
+    public void onMessagesPersisted(List<Message> messages) {
+        Map<Long, Message> latestByRoom = new LinkedHashMap<>();
+        for (Message message : messages) {
+            latestByRoom.merge(message.getChatRoomId(), message,
+                    (current, candidate) -> candidate.getId() > current.getId() ? candidate : current);
+        }
+
+        List<Object[]> rows = new ArrayList<>(latestByRoom.size());
+        for (Message message : latestByRoom.values()) {
+            rows.add(new Object[] {message.getId(), message.getSenderId(), preview(message.getContent()),
+                    Timestamp.valueOf(message.getTimestamp()), message.getChatRoomId(), message.getId()});
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_MESSAGE, rows);
+        } catch (Exception e) {
+            log.error("Error updating summaries of {} rooms", rows.size(), e);
+        }
+        latestByRoom.keySet().forEach(this::invalidate);
+    }
+
+    public RoomSummaryPage getUserRooms(Long userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<RoomSummary> rows;
+        if (cursor == null) {
+            rows = firstPage(userId);
+        } else {
+            Cursor position = Cursor.parse(cursor);
+            rows = roomSummaryRepository.findByUserIdBefore(
+                    userId, position.lastActivityAt(), position.chatRoomId(), pageSize + 1);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        Map<Long, Long> unread = unreadCounterService.getUnreadCounts(userId);
+        List<RoomSummaryDTO> rooms = new ArrayList<>(Math.min(rows.size(), pageSize));
+        for (int i = 0; i < rows.size() && i < pageSize; i++) {
+            rooms.add(toDTO(rows.get(i), unread.getOrDefault(rows.get(i).getChatRoomId(), 0L)));
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            RoomSummary last = rows.get(pageSize - 1);
+            nextCursor = new Cursor(last.getLastActivityAt(), last.getChatRoomId()).format();
+        }
+        return new RoomSummaryPage(rooms, nextCursor, hasMore);
+    }
+
+    private List<RoomSummary> firstPage(Long userId) {
+        FirstPage page;
+        synchronized (firstPages) {
+            page = firstPages.get(userId);
+            if (page == null) {
+                page = new FirstPage();
+                firstPages.put(userId, page);
+            } else if (page.rows != null) {
+                return page.rows;
+            }
+        }
+
+        List<RoomSummary> rows = List.copyOf(roomSummaryRepository.findLatestByUserId(userId, MAX_PAGE_SIZE + 1));
+        synchronized (firstPages) {
+            // A write to one of the user's rooms during the read removed the entry; the rows may be stale
+            if (firstPages.get(userId) == page) {
+                page.rows = rows;
+            }
+        }
+        return rows;
+    }
+
+    private void invalidate(Long roomId) {
+        invalidateLocally(roomId);
+        try {
+            stringRedisTemplate.convertAndSend(roomSummaryTopic.getTopic(), roomId.toString());
+        } catch (Exception e) {
+            log.error("Error publishing room summary invalidation for room {}", roomId, e);
+        }
+    }
+
+    @Override
+    public void onMessage(org.springframework.data.redis.connection.Message message, byte[] pattern) {
+        invalidateLocally(Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8)));
+    }
+
+    private void invalidateLocally(Long roomId) {
+        synchronized (firstPages) {
+            if (firstPages.isEmpty()) {
+                return;
+            }
+        }
+        LongHashSet members = roomMembershipIndex.getMembers(roomId);
+        synchronized (firstPages) {
+            members.forEach(firstPages::remove);
+        }
+    }
+
+    private static String preview(String content) {
+        return content.length() <= PREVIEW_LENGTH ? content : content.substring(0, PREVIEW_LENGTH);
+    }
+
+    private static RoomSummaryDTO toDTO(RoomSummary summary, long unreadCount) {
+        return new RoomSummaryDTO(
+                summary.getChatRoomId(),
+                summary.getName(),
+                summary.getType(),
+                summary.getParticipantCount(),
+                summary.getLastMessageId(),
+                summary.getLastSenderId(),
+                summary.getLastMessagePreview(),
+                summary.getLastActivityAt().format(DateTimeFormatter.ISO_DATE_TIME),
+                unreadCount);
+    }
+
+    /** A cached first page; rows are null until the load that created the entry completes. */
+    private static final class FirstPage {
+        private List<RoomSummary> rows;
+    }
+
+    /** Keyset position "{lastActivityAt}_{chatRoomId}" of the last room on a page. */
+    private record Cursor(LocalDateTime lastActivityAt, Long chatRoomId) {
+
+        static Cursor parse(String value) {
+            int separator = value.lastIndexOf('_');
+            try {
+                return new Cursor(LocalDateTime.parse(value.substring(0, separator)),
+                        Long.parseLong(value.substring(separator + 1)));
+            } catch (DateTimeParseException | IndexOutOfBoundsException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + value);
+            }
+        }
+
+        String format() {
+            return lastActivityAt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + '_' + chatRoomId;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.chat.service;
+
+import com.chat.config.NodeIdentity;
+import com.chat.security.ChatPrincipal;
+import com.chat.security.StompAuthenticationInterceptor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.zset.DefaultTuple;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Derives presence from the STOMP sessions held by this node instead of HTTP heartbeats. Users
+ * are counted per session, so a user stays online until their last session disconnects; dead
+ * connections are detected through STOMP heartbeats and surface as disconnect events.
+ * <p>
+ * Changes are coalesced and written to the {@code online:users} sorted set read by user-service
+ * once per tick. Each user also has a {@code presence:nodes:{userId}} hash of the nodes holding a
+ * session for them, valued with the node's last refresh time. When a user's last session here
+ * ends, this node's field is dropped and the user is removed from {@code online:users} only if no
+ * other node has refreshed its field within three refresh intervals, in one script so that
+ * nodes going offline concurrently cannot both miss each other. Scores and fields of all
+ * connected users are refreshed every {@code refresh-interval-ms}; fields of a node that died
+ * without cleaning up go stale after three intervals.
+ */
+@Service
+@Slf4j
+public class SessionPresenceTracker {
+
+    private static final String ONLINE_USERS_KEY = "online:users";
+    private static final String NODES_KEY_PREFIX = "presence:nodes:";
+    private static final int STALE_REFRESH_INTERVALS = 3;
+    // KEYS: online:users, then presence:nodes:{userId} per user; ARGV: node id, live cutoff, user ids
+    private static final RedisScript<Long> GO_OFFLINE = new DefaultRedisScript<>("""
+            local removed = 0
+            for i = 2, #KEYS do
+              redis.call('HDEL', KEYS[i], ARGV[1])
+              local live = false
+              local nodes = redis.call('HGETALL', KEYS[i])
+              for j = 2, #nodes, 2 do
+                if tonumber(nodes[j]) >= tonumber(ARGV[2]) then
+                  live = true
+                  break
+                end
+              end
+              if not live then
+                redis.call('DEL', KEYS[i])
+                removed = removed + redis.call('ZREM', KEYS[1], ARGV[i + 1])
+              end
+            end
+            return removed
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final NodeIdentity nodeIdentity;
+    private final long flushIntervalMs;
+    private final long refreshIntervalMs;
+
+    private final Map<String, Long> sessionUsers = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> userSessions = new ConcurrentHashMap<>();
+    // Users whose session count crossed zero since the last flush, in either direction
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService ticker;
+    private long lastRefreshMillis;
+
+    public SessionPresenceTracker(
+            StringRedisTemplate stringRedisTemplate,
+            NodeIdentity nodeIdentity,
+            @Value("${chat.presence.flush-interval-ms:1000}") long flushIntervalMs,
+            @Value("${chat.presence.refresh-interval-ms:60000}") long refreshIntervalMs) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.nodeIdentity = nodeIdentity;
+        this.flushIntervalMs = flushIntervalMs;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-presence-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        // The CONNECT frame was authenticated by StompAuthenticationInterceptor before this event
+        ChatPrincipal user = StompAuthenticationInterceptor.currentUser(event.getUser());
+        if (sessionId == null || user == null) {
+            return;
+        }
+        Long userId = user.userId();
+        if (sessionUsers.putIfAbsent(sessionId, userId) != null) {
+            return;
+        }
+        Integer sessions = userSessions.merge(userId, 1, Integer::sum);
+        if (sessions == 1) {
+            changed.add(userId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Long userId = sessionUsers.remove(event.getSessionId());
+        if (userId == null) {
+            return;
+        }
+        Integer sessions = userSessions.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+        if (sessions == null) {
+            changed.add(userId);
+        }
+    }
+
+    public int connectedUserCount() {
+        return userSessions.size();
+    }
+
+    private void flush() {
+        try {
+            long now = System.currentTimeMillis();
+            boolean refresh = now - lastRefreshMillis >= refreshIntervalMs;
+
+            Set<Long> online = new HashSet<>();
+            List<Long> offline = new ArrayList<>();
+            Iterator<Long> iterator = changed.iterator();
+            while (iterator.hasNext()) {
+                Long userId = iterator.next();
+                iterator.remove();
+                // Decide from the current count so a reconnect within one tick is not written as offline
+                if (userSessions.containsKey(userId)) {
+                    online.add(userId);
+                } else {
+                    offline.add(userId);
+                }
+            }
+            if (refresh) {
+                online.addAll(userSessions.keySet());
+                lastRefreshMillis = now;
+            }
+            if (online.isEmpty() && offline.isEmpty()) {
+                return;
+            }
+
+            write(online, offline, now);
+        } catch (Exception e) {
+            log.error("Error writing session presence to Redis", e);
+        }
+    }
+
+    private void write(Set<Long> online, List<Long> offline, long now) {
+        if (!online.isEmpty()) {
+            byte[] node = bytes(nodeIdentity.getNodeId());
+            byte[] refreshedAt = bytes(Long.toString(now));
+            long ttlMs = STALE_REFRESH_INTERVALS * refreshIntervalMs;
+            Set<Tuple> scored = new HashSet<>(online.size() * 2);
+            for (Long userId : online) {
+                scored.add(new DefaultTuple(bytes(userId.toString()), (double) now));
+            }
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.zSetCommands().zAdd(bytes(ONLINE_USERS_KEY), scored, RedisZSetCommands.ZAddArgs.empty());
+                for (Long userId : online) {
+                    byte[] key = bytes(NODES_KEY_PREFIX + userId);
+                    connection.hashCommands().hSet(key, node, refreshedAt);
+                    connection.keyCommands().pExpire(key, ttlMs);
+                }
+                return null;
+            });
+        }
+
+        if (!offline.isEmpty()) {
+            List<String> keys = new ArrayList<>(offline.size() + 1);
+            Object[] args = new Object[offline.size() + 2];
+            keys.add(ONLINE_USERS_KEY);
+            args[0] = nodeIdentity.getNodeId();
+            args[1] = Long.toString(now - STALE_REFRESH_INTERVALS * refreshIntervalMs);
+            for (int i = 0; i < offline.size(); i++) {
+                keys.add(NODES_KEY_PREFIX + offline.get(i));
+                args[i + 2] = offline.get(i).toString();
+            }
+            stringRedisTemplate.execute(GO_OFFLINE, keys, args);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,141 @@
+package com.chat.service;
+
+import com.chat.dto.TypingUpdateDTO;
+import com.chat.util.HashedTimerWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces per-keystroke typing frames into at most one "started" and one "stopped" event per
+ * (room, user) and typing window. Expiry is driven by a hashed timer wheel and all events for a
+ * room produced during one tick are sent as a single frame.
+ */
+@Service
+@Slf4j
+public class TypingIndicatorService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long windowNanos;
+    private final long tickNanos;
+    private final int wheelSize;
+
+    private final Map<TypingKey, TypingState> active = new ConcurrentHashMap<>();
+    private final Queue<TypingState> newlyActive = new ConcurrentLinkedQueue<>();
+    private final Queue<PendingEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+
+    private ScheduledExecutorService ticker;
+    private HashedTimerWheel<TypingState> wheel;
+
+    public TypingIndicatorService(
+            SimpMessagingTemplate messagingTemplate,
+            @Value("${chat.typing.window-ms:3000}") long windowMs,
+            @Value("${chat.typing.tick-ms:100}") long tickMs,
+            @Value("${chat.typing.wheel-size:512}") int wheelSize) {
+        this.messagingTemplate = messagingTemplate;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.wheelSize = wheelSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        wheel = new HashedTimerWheel<>(tickNanos, wheelSize, System.nanoTime());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "typing-indicator-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    public void onTyping(Long roomId, Long userId, String senderName) {
+        long deadline = System.nanoTime() + windowNanos;
+        active.compute(new TypingKey(roomId, userId), (key, state) -> {
+            if (state != null) {
+                state.deadline = deadline;
+                return state;
+            }
+            TypingState started = new TypingState(key, senderName, deadline);
+            newlyActive.add(started);
+            pendingEvents.add(new PendingEvent(roomId, new TypingUpdateDTO.TypingEvent(userId, senderName, true)));
+            return started;
+        });
+    }
+
+    private void tick() {
+        try {
+            long now = System.nanoTime();
+            TypingState state;
+            while ((state = newlyActive.poll()) != null) {
+                wheel.schedule(state, state.deadline);
+            }
+            wheel.advance(now, expired -> expire(expired, now));
+            flushEvents();
+        } catch (Exception e) {
+            log.error("Error processing typing indicators", e);
+        }
+    }
+
+    private void expire(TypingState state, long now) {
+        TypingState remaining = active.computeIfPresent(state.key, (key, current) ->
+                current == state && current.deadline <= now ? null : current);
+        if (remaining == state) {
+            // Still typing: the deadline was pushed out by later keystrokes
+            wheel.schedule(state, state.deadline);
+        } else if (remaining == null) {
+            pendingEvents.add(new PendingEvent(state.key.roomId(),
+                    new TypingUpdateDTO.TypingEvent(state.key.userId(), state.senderName, false)));
+        }
+    }
+
+    private void flushEvents() {
+        if (pendingEvents.isEmpty()) {
+            return;
+        }
+        Map<Long, List<TypingUpdateDTO.TypingEvent>> byRoom = new HashMap<>();
+        PendingEvent event;
+        while ((event = pendingEvents.poll()) != null) {
+            byRoom.computeIfAbsent(event.roomId(), id -> new ArrayList<>()).add(event.event());
+        }
+        byRoom.forEach((roomId, events) ->
+                messagingTemplate.convertAndSend("/topic/typing/" + roomId, new TypingUpdateDTO(roomId, events)));
+    }
+
+    private record TypingKey(Long roomId, Long userId) {
+    }
+
+    private record PendingEvent(Long roomId, TypingUpdateDTO.TypingEvent event) {
+    }
+
+    private static final class TypingState {
+        private final TypingKey key;
+        private final String senderName;
+        private volatile long deadline;
+
+        private TypingState(TypingKey key, String senderName, long deadline) {
+            this.key = key;
+            this.senderName = senderName;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.chat.service;
+
+import com.chat.util.LongHashSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unread message counters per (user, room), kept in one Redis hash per user
+ * ({@code unread:{userId}}, field = room id) so a user's room list reads all of its counts with
+ * a single HGETALL. Counters are incremented for every participant except the sender when a
+ * message is delivered, in one pipelined round trip, and cleared when a read ack brings the
+ * user's read watermark up to the room's newest message.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UnreadCounterService {
+
+    private static final String KEY_PREFIX = "unread:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RoomMembershipIndex roomMembershipIndex;
+
+    public void onMessage(Long roomId, Long senderId) {
+        LongHashSet members = roomMembershipIndex.getMembers(roomId);
+        if (members.size() <= 1) {
+            return;
+        }
+        byte[] field = roomId.toString().getBytes(StandardCharsets.UTF_8);
+        long sender = senderId;
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                members.forEach(userId -> {
+                    if (userId != sender) {
+                        connection.hashCommands().hIncrBy(key(userId), field, 1);
+                    }
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Error incrementing unread counters for room {}", roomId, e);
+        }
+    }
+
+    public void markRead(Long roomId, Long userId) {
+        try {
+            stringRedisTemplate.opsForHash().delete(KEY_PREFIX + userId, roomId.toString());
+        } catch (Exception e) {
+            log.error("Error clearing unread counter of user {} in room {}", userId, roomId, e);
+        }
+    }
+
+    /** Returns room id -> unread count for every room of the user with unread messages. */
+    public Map<Long, Long> getUnreadCounts(Long userId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(KEY_PREFIX + userId);
+        Map<Long, Long> counts = new HashMap<>(entries.size() * 2);
+        entries.forEach((room, count) -> counts.put(Long.parseLong((String) room), Long.parseLong((String) count)));
+        return counts;
+    }
+
+    private static byte[] key(long userId) {
+        return (KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8);
+    }
+}
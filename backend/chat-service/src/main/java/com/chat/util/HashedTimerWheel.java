@@ -0,0 +1,67 @@
+package com.chat.util;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel: timeouts are bucketed by deadline tick into a power-of-two ring of slots,
+ * so scheduling is O(1) and each tick only looks at one slot. Not thread-safe; it is meant to
+ * be driven by a single ticking thread.
+ */
+public final class HashedTimerWheel<T> {
+
+    private final long tickNanos;
+    private final ArrayDeque<Timeout<T>>[] slots;
+    private final int mask;
+    private final long startNanos;
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(long tickNanos, int slotCount, long startNanos) {
+        int size = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+        this.tickNanos = tickNanos;
+        this.slots = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.startNanos = startNanos;
+    }
+
+    public void schedule(T item, long deadlineNanos) {
+        // Never schedule into a tick that has already been processed
+        long deadlineTick = Math.max(currentTick, (deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+        long rounds = (deadlineTick - currentTick) / slots.length;
+        slots[(int) (deadlineTick & mask)].add(new Timeout<>(item, rounds));
+    }
+
+    /**
+     * Processes every tick up to {@code nowNanos}, handing expired items to {@code expired}.
+     */
+    public void advance(long nowNanos, Consumer<T> expired) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        while (currentTick <= targetTick) {
+            ArrayDeque<Timeout<T>> slot = slots[(int) (currentTick & mask)];
+            for (int remaining = slot.size(); remaining > 0; remaining--) {
+                Timeout<T> timeout = slot.poll();
+                if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                    slot.add(timeout);
+                } else {
+                    expired.accept(timeout.item);
+                }
+            }
+            currentTick++;
+        }
+    }
+
+    private static final class Timeout<T> {
+        private final T item;
+        private long rounds;
+
+        private Timeout(T item, long rounds) {
+            this.item = item;
+            this.rounds = rounds;
+        }
+    }
+}
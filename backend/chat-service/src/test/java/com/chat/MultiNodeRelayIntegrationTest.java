@@ -0,0 +1,325 @@
+package com.chat;
+
+import com.chat.dto.ChatMessageDTO;
+import com.chat.dto.CreateChatRoomRequest;
+import com.chat.service.ChatService;
+import com.chat.service.LocalSubscriptionRegistry;
+import com.chat.service.RecentMessageCache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two chat-service nodes with different node ids sharing one Redis and one database, checking
+ * that a message sent on one node reaches the other node's subscribers exactly once through the
+ * Redis relay, is not delivered twice on the sending node, and is not pushed into the other
+ * node's broker for rooms nobody there subscribes to. Frames sent by clients straight to a room
+ * topic, bypassing the sender checks of {@code /app/sendMessage}, must reach nobody.
+ */
+class MultiNodeRelayIntegrationTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+    // Long enough for a duplicate delivery through the Redis round trip to show up
+    private static final long QUIET_MILLIS = 1_000;
+
+    private static final long SENDER = 1;
+    private static final long REMOTE_MEMBER = 2;
+    private static final long OTHER_MEMBER = 3;
+    private static final long OUTSIDER = 99;
+
+    private static RedisServer redisServer;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static WebSocketStompClient stompClient;
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        int redisPort = freePort();
+        redisServer = RedisServer.newRedisServer()
+                .port(redisPort)
+                .bind("127.0.0.1")
+                .setting("save \"\"")
+                .setting("appendonly no")
+                .build();
+        redisServer.start();
+
+        // The second node reuses the schema the first one created, as nodes sharing PostgreSQL do
+        nodeA = startNode("node-a", redisPort, "create");
+        nodeB = startNode("node-b", redisPort, "none");
+
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+    }
+
+    @AfterAll
+    static void stopNodes() throws IOException {
+        try {
+            if (nodeB != null) {
+                nodeB.close();
+            }
+            if (nodeA != null) {
+                nodeA.close();
+            }
+        } finally {
+            if (redisServer != null) {
+                redisServer.stop();
+            }
+        }
+    }
+
+    @Test
+    void relaysMessageExactlyOnceToSubscribersOnOtherNode() throws Exception {
+        long roomId = createRoom("relayed", SENDER, REMOTE_MEMBER);
+        String destination = "/topic/messages/" + roomId;
+
+        Subscriber senderOnA = Subscriber.connect(nodeA, SENDER, destination);
+        Subscriber memberOnB = Subscriber.connect(nodeB, REMOTE_MEMBER, destination);
+        try {
+            awaitTrue(() -> nodeA.getBean(LocalSubscriptionRegistry.class).hasSubscribers(destination)
+                    && nodeB.getBean(LocalSubscriptionRegistry.class).hasSubscribers(destination));
+            double relayedBefore = relayDispatches(nodeB);
+
+            senderOnA.send(roomId, "hello from A");
+
+            awaitTrue(() -> memberOnB.received().size() >= 1);
+            awaitTrue(() -> senderOnA.received().size() >= 1);
+            Thread.sleep(QUIET_MILLIS);
+
+            assertEquals(List.of("hello from A"), memberOnB.received());
+            assertEquals(List.of("hello from A"), senderOnA.received());
+            assertEquals(relayedBefore + 1, relayDispatches(nodeB));
+            assertEquals(0, relayDispatches(nodeA));
+        } finally {
+            senderOnA.disconnect();
+            memberOnB.disconnect();
+        }
+    }
+
+    @Test
+    void doesNotRelayToNodeWithoutLocalSubscribers() throws Exception {
+        long roomId = createRoom("local-only", SENDER, OTHER_MEMBER);
+        String destination = "/topic/messages/" + roomId;
+        // Load the room's history window on B, so B's handling of the relayed message is observable
+        nodeB.getBean(ChatService.class).getRoomMessages(roomId, null, null, 50);
+
+        Subscriber senderOnA = Subscriber.connect(nodeA, SENDER, destination);
+        try {
+            awaitTrue(() -> nodeA.getBean(LocalSubscriptionRegistry.class).hasSubscribers(destination));
+            double relayedBefore = relayDispatches(nodeB);
+
+            senderOnA.send(roomId, "nobody on B");
+
+            awaitTrue(() -> senderOnA.received().size() >= 1);
+            RecentMessageCache cacheOnB = nodeB.getBean(RecentMessageCache.class);
+            awaitTrue(() -> {
+                var page = cacheOnB.getPage(roomId, null, 50);
+                return page != null && !page.getMessages().isEmpty();
+            });
+
+            assertEquals(relayedBefore, relayDispatches(nodeB));
+            assertEquals(List.of("nobody on B"), senderOnA.received());
+        } finally {
+            senderOnA.disconnect();
+        }
+    }
+
+    @Test
+    void dropsSendsStraightToRoomTopics() throws Exception {
+        long roomId = createRoom("direct-send", SENDER, REMOTE_MEMBER);
+        String destination = "/topic/messages/" + roomId;
+
+        Subscriber senderOnA = Subscriber.connect(nodeA, SENDER, destination);
+        Subscriber memberOnB = Subscriber.connect(nodeB, REMOTE_MEMBER, destination);
+        Subscriber outsiderOnA = Subscriber.connect(nodeA, OUTSIDER, null);
+        Subscriber memberOnA = Subscriber.connect(nodeA, REMOTE_MEMBER, null);
+        try {
+            awaitTrue(() -> nodeA.getBean(LocalSubscriptionRegistry.class).hasSubscribers(destination)
+                    && nodeB.getBean(LocalSubscriptionRegistry.class).hasSubscribers(destination));
+
+            // Neither a non-participant nor a participant posing as another sender gets through
+            outsiderOnA.sendTo(destination, roomId, SENDER, "forged by outsider");
+            memberOnA.sendTo(destination, roomId, SENDER, "forged by member");
+            memberOnA.sendTo("/topic/typing/" + roomId, roomId, SENDER, "forged typing");
+            senderOnA.send(roomId, "genuine");
+
+            awaitTrue(() -> memberOnB.received().contains("genuine") && senderOnA.received().contains("genuine"));
+            Thread.sleep(QUIET_MILLIS);
+
+            assertEquals(List.of("genuine"), memberOnB.received());
+            assertEquals(List.of("genuine"), senderOnA.received());
+        } finally {
+            senderOnA.disconnect();
+            memberOnB.disconnect();
+            outsiderOnA.disconnect();
+            memberOnA.disconnect();
+        }
+    }
+
+    private static long createRoom(String name, long creatorId, long... otherIds) {
+        CreateChatRoomRequest request = new CreateChatRoomRequest();
+        request.setName(name);
+        request.setType("group");
+        List<Long> participants = new ArrayList<>();
+        for (long id : otherIds) {
+            participants.add(id);
+        }
+        request.setParticipantIds(participants);
+        return nodeA.getBean(ChatService.class).createChatRoom(creatorId, request).getId();
+    }
+
+    private static double relayDispatches(ConfigurableApplicationContext node) {
+        return node.getBean(MeterRegistry.class)
+                .get("chat.pipeline.dispatch").tag("source", "relay")
+                .timer().count();
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId, int redisPort, String ddlAuto)
+            throws IOException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:multinode;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.hibernate.ddl-auto", ddlAuto);
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.data.redis.host", "127.0.0.1");
+        properties.put("spring.data.redis.port", String.valueOf(redisPort));
+        properties.put("chat.node-id", nodeId);
+        properties.put("chat.search.dir", Files.createTempDirectory("chat-search-" + nodeId).toString());
+        properties.put("logging.level.com.chat", "INFO");
+        properties.put("logging.level.org.springframework.messaging", "WARN");
+
+        String[] args = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        return SpringApplication.run(ChatServiceApplication.class, args);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for condition");
+            Thread.sleep(20);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * A STOMP session of one user on one node, recording the contents delivered to one destination,
+     * or not subscribed to anything when the destination is null.
+     */
+    private static final class Subscriber extends StompSessionHandlerAdapter implements StompFrameHandler {
+
+        private final long userId;
+        private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+        private StompSession session;
+
+        private Subscriber(long userId) {
+            this.userId = userId;
+        }
+
+        static Subscriber connect(ConfigurableApplicationContext node, long userId, String destination)
+                throws Exception {
+            int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+            String secret = node.getEnvironment().getRequiredProperty("jwt.secret");
+            String token = Jwts.builder()
+                    .subject(String.valueOf(userId))
+                    .claim("username", "user" + userId)
+                    .issuedAt(new Date())
+                    .expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                    .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                    .compact();
+
+            Subscriber subscriber = new Subscriber(userId);
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("Authorization", "Bearer " + token);
+            subscriber.session = stompClient.connectAsync("ws://127.0.0.1:" + port + "/ws/websocket",
+                            new WebSocketHttpHeaders(), connectHeaders, subscriber)
+                    .get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            if (destination != null) {
+                subscriber.session.subscribe(destination, subscriber);
+            }
+            return subscriber;
+        }
+
+        void send(long roomId, String content) {
+            ChatMessageDTO message = new ChatMessageDTO();
+            message.setChatRoomId(roomId);
+            message.setSenderId(userId);
+            message.setContent(content);
+            session.send("/app/sendMessage", message);
+        }
+
+        /** Sends a message claiming to be from {@code senderId} straight to {@code destination}. */
+        void sendTo(String destination, long roomId, long senderId, String content) {
+            ChatMessageDTO message = new ChatMessageDTO();
+            message.setChatRoomId(roomId);
+            message.setSenderId(senderId);
+            message.setSenderName("user" + senderId);
+            message.setContent(content);
+            session.send(destination, message);
+        }
+
+        List<String> received() {
+            synchronized (received) {
+                return List.copyOf(received);
+            }
+        }
+
+        void disconnect() {
+            // The server closes sessions whose frames it rejected
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return ChatMessageDTO.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            received.add(((ChatMessageDTO) payload).getContent());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.chat.loadtest;
+
+import com.chat.dto.CreateChatRoomRequest;
+import com.chat.model.ChatRoom;
+import com.chat.service.ChatService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts chat-service in-process against embedded stand-ins, connects one STOMP session per
+ * simulated user and reports send-to-receive latency, throughput and errors.
+ * <p>
+ * Example: {@code java -jar target/load-test.jar --rooms=100 --room-size=50 --rate=500 --duration=60}
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        int exitCode;
+        try (EmbeddedChatService chatService = EmbeddedChatService.start(options.chatServiceProperties())) {
+            List<Long> roomIds = seedRooms(chatService.getBean(ChatService.class), options);
+
+            StompLoadGenerator generator = new StompLoadGenerator(
+                    options, chatService.port(), chatService.getProperty("jwt.secret"));
+            StompLoadGenerator.ConnectResult connected = generator.connect(roomIds);
+            System.out.printf("Sessions:   %d connected, %d failed in %.1f s (%d rooms x %d members)%n",
+                    connected.connected(), connected.failed(), connected.elapsedNanos() / 1e9,
+                    options.rooms(), options.roomSize());
+
+            System.out.printf("Sending %.0f messages/s: %d s warm-up, %d s measured%n",
+                    options.rate(), options.warmupSeconds(), options.durationSeconds());
+            LoadTestResult result = generator.run();
+            result.print(System.out);
+            generator.disconnect();
+
+            exitCode = connected.failed() > 0 || result.errors() > 0
+                    || result.delivered() < result.expectedDeliveries() ? 1 : 0;
+        }
+        System.exit(exitCode);
+    }
+
+    private static List<Long> seedRooms(ChatService chatService, LoadTestOptions options) {
+        List<Long> roomIds = new ArrayList<>(options.rooms());
+        for (int room = 0; room < options.rooms(); room++) {
+            long firstUserId = (long) room * options.roomSize() + 1;
+            List<Long> others = new ArrayList<>(options.roomSize() - 1);
+            for (int member = 1; member < options.roomSize(); member++) {
+                others.add(firstUserId + member);
+            }
+            CreateChatRoomRequest request = new CreateChatRoomRequest();
+            request.setName("load-test-" + room);
+            request.setType("group");
+            request.setParticipantIds(others);
+            ChatRoom chatRoom = chatService.createChatRoom(firstUserId, request);
+            roomIds.add(chatRoom.getId());
+        }
+        return roomIds;
+    }
+}
@@ -0,0 +1,56 @@
+package com.chat.loadtest;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line options of the load test, given as {@code --name=value}. Options the load test
+ * does not know (for example {@code --chat.broker.mode=sharded}) are passed on to chat-service.
+ */
+public record LoadTestOptions(
+        int rooms,
+        int roomSize,
+        double rate,
+        int warmupSeconds,
+        int durationSeconds,
+        int drainSeconds,
+        int messageSize,
+        int connectConcurrency,
+        Map<String, String> chatServiceProperties) {
+
+    private static final List<String> KNOWN = List.of(
+            "rooms", "room-size", "rate", "warmup", "duration", "drain", "message-size", "connect-concurrency");
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        Map<String, String> passThrough = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (KNOWN.contains(name)) {
+                values.put(name, value);
+            } else {
+                passThrough.put(name, value);
+            }
+        }
+        return new LoadTestOptions(
+                Integer.parseInt(values.getOrDefault("rooms", "50")),
+                Integer.parseInt(values.getOrDefault("room-size", "20")),
+                Double.parseDouble(values.getOrDefault("rate", "200")),
+                Integer.parseInt(values.getOrDefault("warmup", "5")),
+                Integer.parseInt(values.getOrDefault("duration", "30")),
+                Integer.parseInt(values.getOrDefault("drain", "5")),
+                Integer.parseInt(values.getOrDefault("message-size", "100")),
+                Integer.parseInt(values.getOrDefault("connect-concurrency", "200")),
+                passThrough);
+    }
+
+    public int sessions() {
+        return rooms * roomSize;
+    }
+}
@@ -0,0 +1,40 @@
+package com.chat.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of the measured period of a load test run.
+ */
+public record LoadTestResult(
+        long sent,
+        long delivered,
+        long expectedDeliveries,
+        long errors,
+        long elapsedNanos,
+        Histogram latencyNanos) {
+
+    public void print(PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf("Sent:       %d messages (%.1f/s)%n", sent, sent / seconds);
+        out.printf("Delivered:  %d of %d expected (%.1f/s), %d missing%n",
+                delivered, expectedDeliveries, delivered / seconds, Math.max(0, expectedDeliveries - delivered));
+        out.printf("Errors:     %d%n", errors);
+        if (latencyNanos.getTotalCount() == 0) {
+            out.println("Latency:    no deliveries recorded");
+            return;
+        }
+        out.printf("Latency ms: p50 %.2f  p95 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                millis(latencyNanos.getValueAtPercentile(50)),
+                millis(latencyNanos.getValueAtPercentile(95)),
+                millis(latencyNanos.getValueAtPercentile(99)),
+                millis(latencyNanos.getValueAtPercentile(99.9)),
+                millis(latencyNanos.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,270 @@
+package com.chat.loadtest;
+
+import com.chat.dto.ChatMessageDTO;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import javax.crypto.SecretKey;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opens one STOMP session per simulated user, subscribes each to its room and sends chat messages
+ * from random users at a fixed rate. Every message carries its send time, so each delivery
+ * records a send-to-receive latency.
+ */
+@Slf4j
+public class StompLoadGenerator {
+
+    private static final long TICK_MILLIS = 10;
+
+    private final LoadTestOptions options;
+    private final String url;
+    private final WebSocketStompClient stompClient;
+    private final List<Client> clients = new ArrayList<>();
+    private final Recorder latencies = new Recorder(TimeUnit.MINUTES.toNanos(1), 3);
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong measuredDeliveries = new AtomicLong();
+    private final String padding;
+    private final SecretKey jwtKey;
+
+    // Messages sent before this are warm-up traffic and are not measured
+    private volatile long measureFromNanos = Long.MAX_VALUE;
+
+    /** {@code jwtSecret} signs the tokens the simulated users authenticate their sessions with. */
+    public StompLoadGenerator(LoadTestOptions options, int port, String jwtSecret) {
+        this.options = options;
+        // The SockJS endpoint also accepts plain WebSocket connections on /websocket
+        this.url = "ws://127.0.0.1:" + port + "/ws/websocket";
+        this.stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        this.stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        this.stompClient.setDefaultHeartbeat(new long[] {0, 0});
+        this.padding = "x".repeat(Math.max(0, options.messageSize() - 20));
+        this.jwtKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Connects {@code roomSize} users to each room. Room {@code r} holds users
+     * {@code r * roomSize + 1} to {@code (r + 1) * roomSize}, matching the rooms seeded by the caller.
+     */
+    public ConnectResult connect(List<Long> roomIds) throws InterruptedException {
+        long start = System.nanoTime();
+        Semaphore inFlight = new Semaphore(options.connectConcurrency());
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (int room = 0; room < roomIds.size(); room++) {
+            for (int member = 0; member < options.roomSize(); member++) {
+                long userId = (long) room * options.roomSize() + member + 1;
+                Client client = new Client(userId, roomIds.get(room));
+                inFlight.acquire();
+                pending.add(client.connect().whenComplete((ignored, e) -> inFlight.release()));
+            }
+        }
+
+        int failed = 0;
+        for (CompletableFuture<Void> future : pending) {
+            try {
+                future.join();
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        return new ConnectResult(clients.size(), failed, System.nanoTime() - start);
+    }
+
+    /**
+     * Sends at the configured rate for the warm-up and measurement periods, then waits for
+     * in-flight deliveries to drain.
+     */
+    public LoadTestResult run() throws InterruptedException {
+        if (clients.isEmpty()) {
+            throw new IllegalStateException("No connected sessions");
+        }
+        ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-test-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        SendLoop loop = new SendLoop(System.nanoTime());
+        sender.scheduleAtFixedRate(loop, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.warmupSeconds()));
+        long measureStart = System.nanoTime();
+        measureFromNanos = measureStart;
+        latencies.reset();
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds()));
+        sender.shutdown();
+        sender.awaitTermination(5, TimeUnit.SECONDS);
+        long measureEnd = System.nanoTime();
+        long measuredSends = loop.measuredSent;
+        // Every message is delivered to all members of its room, the sender included
+        long expectedDeliveries = measuredSends * options.roomSize();
+
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.drainSeconds());
+        while (measuredDeliveries.get() < expectedDeliveries && System.nanoTime() < drainDeadline) {
+            Thread.sleep(50);
+        }
+
+        Histogram histogram = latencies.getIntervalHistogram();
+        return new LoadTestResult(
+                measuredSends,
+                measuredDeliveries.get(),
+                expectedDeliveries,
+                errors.get(),
+                measureEnd - measureStart,
+                histogram);
+    }
+
+    public void disconnect() {
+        for (Client client : clients) {
+            StompSession session = client.session;
+            if (session != null && session.isConnected()) {
+                session.disconnect();
+            }
+        }
+        stompClient.stop();
+    }
+
+    public record ConnectResult(int connected, int failed, long elapsedNanos) {
+    }
+
+    private final class SendLoop implements Runnable {
+        private final long startNanos;
+        private long sent;
+        // Successful sends stamped at or after measureFromNanos; read after the loop has stopped
+        private volatile long measuredSent;
+
+        private SendLoop(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void run() {
+            long due = (long) ((System.nanoTime() - startNanos) / 1e9 * options.rate());
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (sent < due) {
+                sent++;
+                Client client = clients.get(random.nextInt(clients.size()));
+                try {
+                    long sentNanos = client.send();
+                    if (sentNanos >= measureFromNanos) {
+                        measuredSent++;
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private final class Client extends StompSessionHandlerAdapter {
+        private final long userId;
+        private final long roomId;
+        private volatile StompSession session;
+
+        private Client(long userId, long roomId) {
+            this.userId = userId;
+            this.roomId = roomId;
+        }
+
+        private CompletableFuture<Void> connect() {
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("Authorization", "Bearer " + token());
+            return stompClient.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, this)
+                    .thenAccept(connected -> {
+                        session = connected;
+                        connected.subscribe("/topic/messages/" + roomId, new RoomMessageHandler());
+                        synchronized (clients) {
+                            clients.add(this);
+                        }
+                    });
+        }
+
+        /** A token as auth-service issues it: the subject is the user id. */
+        private String token() {
+            return Jwts.builder()
+                    .subject(String.valueOf(userId))
+                    .claim("username", "user" + userId)
+                    .issuedAt(new Date())
+                    .expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                    .signWith(jwtKey)
+                    .compact();
+        }
+
+        private long send() {
+            ChatMessageDTO message = new ChatMessageDTO();
+            message.setChatRoomId(roomId);
+            message.setSenderId(userId);
+            message.setSenderName("user" + userId);
+            long sentNanos = System.nanoTime();
+            message.setContent(sentNanos + ":" + padding);
+            session.send("/app/sendMessage", message);
+            return sentNanos;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            // Only ERROR frames reach the session handler
+            errors.incrementAndGet();
+            log.debug("STOMP ERROR frame for user {}: {}", userId, payload);
+        }
+
+        @Override
+        public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                    byte[] payload, Throwable exception) {
+            errors.incrementAndGet();
+            log.debug("STOMP error for user {}", userId, exception);
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            errors.incrementAndGet();
+            log.debug("Transport error for user {}", userId, exception);
+        }
+    }
+
+    private final class RoomMessageHandler implements StompFrameHandler {
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return ChatMessageDTO.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            long receivedNanos = System.nanoTime();
+            String content = ((ChatMessageDTO) payload).getContent();
+            int separator = content != null ? content.indexOf(':') : -1;
+            if (separator < 0) {
+                return;
+            }
+            long sentNanos = Long.parseLong(content, 0, separator, 10);
+            if (sentNanos >= measureFromNanos) {
+                latencies.recordValue(Math.max(0, receivedNanos - sentNanos));
+                measuredDeliveries.incrementAndGet();
+            }
+        }
+    }
+}
@@ -32,13 +32,25 @@ public class UserController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<UserDTO>> searchUsers(@RequestParam String q) {
-        return ResponseEntity.ok(userService.searchUsers(q));
+    public ResponseEntity<List<UserDTO>> searchUsers(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(userService.searchUsers(q, Math.max(1, Math.min(limit, 100))));
     }
 
     @GetMapping("/online")
-    public ResponseEntity<List<UserDTO>> getOnlineUsers() {
-        return ResponseEntity.ok(userService.getOnlineUsers());
+    public ResponseEntity<List<UserDTO>> getOnlineUsers(
+            @RequestParam(required = false) Long offset,
+            @RequestParam(required = false) Long limit) {
+        if (limit == null) {
+            return ResponseEntity.ok(userService.getOnlineUsers());
+        }
+        return ResponseEntity.ok(userService.getOnlineUsers(Math.max(0, offset != null ? offset : 0), Math.max(1, Math.min(limit, 500))));
+    }
+
+    @GetMapping("/online/count")
+    public ResponseEntity<Long> countOnlineUsers() {
+        return ResponseEntity.ok(presenceService.countOnlineUsers());
     }
 
     @PostMapping("/status")
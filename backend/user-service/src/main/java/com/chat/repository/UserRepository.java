@@ -1,13 +1,27 @@
 package com.chat.repository;
 
 import com.chat.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     List<User> findByUsernameContainingIgnoreCase(String username);
+
+    @Query("SELECT u.id AS id, u.username AS username, u.updatedAt AS updatedAt FROM User u")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<UsernameEntry> streamUsernames();
+
+    @Query("SELECT u.id AS id, u.username AS username, u.updatedAt AS updatedAt FROM User u WHERE u.updatedAt >= ?1")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<UsernameEntry> streamUsernamesUpdatedSince(LocalDateTime since);
 }
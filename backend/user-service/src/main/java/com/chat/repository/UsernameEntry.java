@@ -0,0 +1,9 @@
+package com.chat.repository;
+
+import java.time.LocalDateTime;
+
+public interface UsernameEntry {
+    Long getId();
+    String getUsername();
+    LocalDateTime getUpdatedAt();
+}
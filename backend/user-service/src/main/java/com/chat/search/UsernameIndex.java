@@ -0,0 +1,163 @@
+package com.chat.search;
+
+import com.chat.util.LongPostingList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory username index. Prefix matches come from a sorted map of lower-cased names;
+ * substring matches (queries of three or more characters) come from intersecting trigram
+ * posting lists of user ids. Prefix matches rank before substring matches.
+ */
+public class UsernameIndex {
+
+    private static final Comparator<Candidate> BEST_FIRST = Comparator
+            .comparingInt((Candidate candidate) -> candidate.name().length())
+            .thenComparing(Candidate::name);
+
+    // "name\0id" -> id, so case-insensitive duplicates stay distinct
+    private final NavigableMap<String, Long> byName = new ConcurrentSkipListMap<>();
+    private final Map<Long, String> namesById = new ConcurrentHashMap<>();
+    private final Map<Long, LongPostingList> trigrams = new HashMap<>();
+    // Renames update all three maps under the write lock, so a search never sees half of one
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void put(long userId, String username) {
+        String name = username.toLowerCase(Locale.ROOT);
+        lock.writeLock().lock();
+        try {
+            String previous = namesById.put(userId, name);
+            if (name.equals(previous)) {
+                return;
+            }
+            if (previous != null) {
+                byName.remove(previous + '\0' + userId);
+            }
+            byName.put(name + '\0' + userId, userId);
+
+            if (previous != null) {
+                for (long trigram : trigramsOf(previous)) {
+                    LongPostingList postings = trigrams.get(trigram);
+                    if (postings != null) {
+                        postings.remove(userId);
+                        if (postings.size() == 0) {
+                            trigrams.remove(trigram);
+                        }
+                    }
+                }
+            }
+            for (long trigram : trigramsOf(name)) {
+                trigrams.computeIfAbsent(trigram, key -> new LongPostingList()).add(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return namesById.size();
+    }
+
+    /**
+     * Returns up to {@code limit} user ids whose username contains {@code query}: prefix matches
+     * first in alphabetical order, then substring matches by name length and alphabetically.
+     */
+    public List<Long> search(String query, int limit) {
+        String q = query.toLowerCase(Locale.ROOT);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        List<Long> result = new ArrayList<>(limit);
+        PriorityQueue<Candidate> substringMatches = new PriorityQueue<>(BEST_FIRST.reversed());
+        lock.readLock().lock();
+        try {
+            // Prefix matches in lexicographic order, which puts an exact match first
+            for (Map.Entry<String, Long> entry : byName.tailMap(q, true).entrySet()) {
+                if (result.size() >= limit || !entry.getKey().startsWith(q)) {
+                    break;
+                }
+                result.add(entry.getValue());
+            }
+            if (result.size() >= limit || q.length() < 3) {
+                return result;
+            }
+
+            Set<Long> seen = new HashSet<>(result);
+            int remaining = limit - result.size();
+            List<LongPostingList> postings = new ArrayList<>();
+            for (long trigram : trigramsOf(q)) {
+                LongPostingList list = trigrams.get(trigram);
+                if (list == null) {
+                    return result;
+                }
+                postings.add(list);
+            }
+            postings.sort(Comparator.comparingInt(LongPostingList::size));
+
+            LongPostingList smallest = postings.get(0);
+            candidates:
+            for (int i = 0; i < smallest.size(); i++) {
+                long userId = smallest.get(i);
+                for (int p = 1; p < postings.size(); p++) {
+                    if (!postings.get(p).contains(userId)) {
+                        continue candidates;
+                    }
+                }
+                String name = namesById.get(userId);
+                if (name != null && name.contains(q) && !seen.contains(userId)) {
+                    offer(substringMatches, new Candidate(userId, name), remaining);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        result.addAll(drain(substringMatches));
+        return result;
+    }
+
+    private static void offer(PriorityQueue<Candidate> worstFirst, Candidate candidate, int limit) {
+        if (worstFirst.size() < limit) {
+            worstFirst.add(candidate);
+        } else if (BEST_FIRST.compare(candidate, worstFirst.peek()) < 0) {
+            worstFirst.poll();
+            worstFirst.add(candidate);
+        }
+    }
+
+    private static List<Long> drain(PriorityQueue<Candidate> worstFirst) {
+        Candidate[] ordered = worstFirst.toArray(new Candidate[0]);
+        Arrays.sort(ordered, BEST_FIRST);
+        List<Long> ids = new ArrayList<>(ordered.length);
+        for (Candidate candidate : ordered) {
+            ids.add(candidate.userId());
+        }
+        return ids;
+    }
+
+    private static Set<Long> trigramsOf(String name) {
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            result.add(((long) name.charAt(i) << 32) | ((long) name.charAt(i + 1) << 16) | name.charAt(i + 2));
+        }
+        return result;
+    }
+
+    private record Candidate(long userId, String name) {
+    }
+}
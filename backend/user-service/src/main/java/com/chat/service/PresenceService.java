@@ -4,44 +4,112 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PresenceService {
 
     private final RedisTemplate<String, String> redisTemplate;
+    // Sorted set of user ids scored by their last heartbeat (epoch millis)
     private static final String ONLINE_USERS_KEY = "online:users";
     private static final long PRESENCE_TIMEOUT = 5; // minutes
+    private static final int MAX_SWEEP_BATCHES = 100;
 
     public void setUserOnline(Long userId) {
-        String key = ONLINE_USERS_KEY + ":" + userId;
-        redisTemplate.opsForValue().set(key, "online", PRESENCE_TIMEOUT, TimeUnit.MINUTES);
+        redisTemplate.opsForZSet().add(ONLINE_USERS_KEY, userId.toString(), System.currentTimeMillis());
     }
 
     public void setUserOffline(Long userId) {
-        String key = ONLINE_USERS_KEY + ":" + userId;
-        redisTemplate.delete(key);
+        redisTemplate.opsForZSet().remove(ONLINE_USERS_KEY, userId.toString());
     }
 
     public boolean isUserOnline(Long userId) {
-        String key = ONLINE_USERS_KEY + ":" + userId;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        Double lastHeartbeat = redisTemplate.opsForZSet().score(ONLINE_USERS_KEY, userId.toString());
+        return lastHeartbeat != null && lastHeartbeat >= onlineCutoff();
+    }
+
+    /**
+     * Returns which of the given users are online, using a single ZMSCORE round trip.
+     */
+    public Set<Long> filterOnline(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return Set.of();
+
+        Object[] members = userIds.stream().map(String::valueOf).toArray();
+        List<Double> lastHeartbeats = redisTemplate.opsForZSet().score(ONLINE_USERS_KEY, members);
+        if (lastHeartbeats == null) return Set.of();
+
+        double cutoff = onlineCutoff();
+        Set<Long> online = new HashSet<>();
+        int i = 0;
+        for (Long userId : userIds) {
+            Double lastHeartbeat = lastHeartbeats.get(i++);
+            if (lastHeartbeat != null && lastHeartbeat >= cutoff) {
+                online.add(userId);
+            }
+        }
+        return online;
     }
 
     public Set<Long> getOnlineUsers() {
-        Set<String> keys = redisTemplate.keys(ONLINE_USERS_KEY + ":*");
-        if (keys == null) return Set.of();
-        
-        return keys.stream()
-                .map(key -> key.substring(key.lastIndexOf(":") + 1))
-                .map(Long::parseLong)
-                .collect(Collectors.toSet());
+        return toIds(redisTemplate.opsForZSet().rangeByScore(ONLINE_USERS_KEY, onlineCutoff(), Double.POSITIVE_INFINITY));
+    }
+
+    /**
+     * Returns a page of online users, most recently active first.
+     */
+    public Set<Long> getOnlineUsers(long offset, long limit) {
+        return toIds(redisTemplate.opsForZSet().reverseRangeByScore(
+                ONLINE_USERS_KEY, onlineCutoff(), Double.POSITIVE_INFINITY, offset, limit));
+    }
+
+    public long countOnlineUsers() {
+        Long count = redisTemplate.opsForZSet().count(ONLINE_USERS_KEY, onlineCutoff(), Double.POSITIVE_INFINITY);
+        return count != null ? count : 0;
     }
 
     public void heartbeat(Long userId) {
         setUserOnline(userId);
     }
+
+    /**
+     * Removes users whose last heartbeat is older than the presence timeout, in batches of at most
+     * {@code batchSize} members so a large backlog never blocks Redis for long.
+     */
+    public long removeExpired(int batchSize) {
+        double cutoff = onlineCutoff();
+        long removed = 0;
+        for (int batch = 0; batch < MAX_SWEEP_BATCHES; batch++) {
+            Set<String> expired = redisTemplate.opsForZSet()
+                    .rangeByScore(ONLINE_USERS_KEY, Double.NEGATIVE_INFINITY, cutoff, 0, batchSize);
+            if (expired == null || expired.isEmpty()) {
+                break;
+            }
+            Long count = redisTemplate.opsForZSet().remove(ONLINE_USERS_KEY, expired.toArray());
+            removed += count != null ? count : 0;
+            if (expired.size() < batchSize) {
+                break;
+            }
+        }
+        return removed;
+    }
+
+    private double onlineCutoff() {
+        return System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(PRESENCE_TIMEOUT);
+    }
+
+    private Set<Long> toIds(Set<String> members) {
+        if (members == null) return Set.of();
+
+        Set<Long> ids = new LinkedHashSet<>(members.size() * 2);
+        for (String member : members) {
+            ids.add(Long.parseLong(member));
+        }
+        return ids;
+    }
 }
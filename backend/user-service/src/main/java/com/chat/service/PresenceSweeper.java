@@ -0,0 +1,30 @@
+package com.chat.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceSweeper {
+
+    private final PresenceService presenceService;
+
+    @Value("${presence.sweep-batch-size:1000}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${presence.sweep-interval-ms:30000}")
+    public void sweep() {
+        try {
+            long removed = presenceService.removeExpired(batchSize);
+            if (removed > 0) {
+                log.debug("Removed {} expired presence entries", removed);
+            }
+        } catch (Exception e) {
+            log.error("Error sweeping expired presence entries", e);
+        }
+    }
+}
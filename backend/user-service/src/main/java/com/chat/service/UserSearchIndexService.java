@@ -0,0 +1,107 @@
+package com.chat.service;
+
+import com.chat.repository.UserRepository;
+import com.chat.repository.UsernameEntry;
+import com.chat.search.UsernameIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Owns the in-memory {@link UsernameIndex}. The index is built by streaming all usernames once
+ * the application is ready and then kept current from {@link UserService#updateUser} and a
+ * periodic sync of rows changed since the last seen {@code updated_at}, which also picks up
+ * users registered through auth-service.
+ */
+@Service
+@Slf4j
+public class UserSearchIndexService {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long syncOverlapMs;
+    private final UsernameIndex index = new UsernameIndex();
+
+    private volatile boolean ready;
+    // Guarded by this; load and sync are synchronized
+    private LocalDateTime watermark;
+
+    public UserSearchIndexService(
+            UserRepository userRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${search.sync-overlap-ms:60000}") long syncOverlapMs) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.syncOverlapMs = syncOverlapMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        long start = System.nanoTime();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<UsernameEntry> entries = userRepository.streamUsernames()) {
+                    entries.forEach(this::apply);
+                }
+            });
+            ready = true;
+            log.info("Loaded {} usernames into the search index in {} ms",
+                    index.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            // Search falls back to the database until a later sync completes the load
+            log.error("Error loading the user search index", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.sync-interval-ms:5000}")
+    public synchronized void sync() {
+        if (!ready) {
+            load();
+            return;
+        }
+        try {
+            // Re-read a short overlap so rows committed late with an older timestamp are not missed
+            LocalDateTime since = watermark != null
+                    ? watermark.minusNanos(syncOverlapMs * 1_000_000)
+                    : EPOCH;
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<UsernameEntry> entries = userRepository.streamUsernamesUpdatedSince(since)) {
+                    entries.forEach(this::apply);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error syncing the user search index", e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<Long> search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    public void onUserUpdated(Long userId, String username) {
+        index.put(userId, username);
+    }
+
+    private void apply(UsernameEntry entry) {
+        index.put(entry.getId(), entry.getUsername());
+        if (entry.getUpdatedAt() != null && (watermark == null || entry.getUpdatedAt().isAfter(watermark))) {
+            watermark = entry.getUpdatedAt();
+        }
+    }
+}
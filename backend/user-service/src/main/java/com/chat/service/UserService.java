@@ -6,8 +6,12 @@ import com.chat.model.User;
 import com.chat.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -15,6 +19,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PresenceService presenceService;
+    private final UserSearchIndexService searchIndexService;
 
     public UserDTO getUserById(Long id) {
         User user = userRepository.findById(id)
@@ -37,21 +42,46 @@ public class UserService {
         }
 
         user = userRepository.save(user);
+        searchIndexService.onUserUpdated(user.getId(), user.getUsername());
         return convertToDTO(user);
     }
 
-    public List<UserDTO> searchUsers(String query) {
-        return userRepository.findByUsernameContainingIgnoreCase(query)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public List<UserDTO> searchUsers(String query, int limit) {
+        limit = Math.max(1, limit);
+        if (searchIndexService.isReady()) {
+            return getUsersByIds(searchIndexService.search(query, limit));
+        }
+        List<User> users = userRepository.findByUsernameContainingIgnoreCase(query);
+        return convertToDTOs(users.size() > limit ? users.subList(0, limit) : users);
     }
 
     public List<UserDTO> getOnlineUsers() {
-        return presenceService.getOnlineUsers()
-                .stream()
-                .map(this::getUserById)
-                .collect(Collectors.toList());
+        return getUsersByIds(presenceService.getOnlineUsers());
+    }
+
+    public List<UserDTO> getOnlineUsers(long offset, long limit) {
+        return getUsersByIds(presenceService.getOnlineUsers(offset, limit));
+    }
+
+    /**
+     * Loads the given users with one query and returns them in the order of {@code ids},
+     * skipping ids that no longer exist.
+     */
+    public List<UserDTO> getUsersByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+
+        Map<Long, User> usersById = new HashMap<>(ids.size() * 2);
+        for (User user : userRepository.findAllById(ids)) {
+            usersById.put(user.getId(), user);
+        }
+        List<User> users = new ArrayList<>(usersById.size());
+        for (Long id : ids) {
+            User user = usersById.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return convertToDTOs(users);
     }
 
     public void setUserStatus(Long userId, String status) {
@@ -68,12 +98,32 @@ public class UserService {
     }
 
     private UserDTO convertToDTO(User user) {
+        return toDTO(user, presenceService.isUserOnline(user.getId()));
+    }
+
+    private List<UserDTO> convertToDTOs(List<User> users) {
+        if (users.isEmpty()) return List.of();
+
+        List<Long> ids = new ArrayList<>(users.size());
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        Set<Long> online = presenceService.filterOnline(ids);
+
+        List<UserDTO> dtos = new ArrayList<>(users.size());
+        for (User user : users) {
+            dtos.add(toDTO(user, online.contains(user.getId())));
+        }
+        return dtos;
+    }
+
+    private UserDTO toDTO(User user, boolean online) {
         return new UserDTO(
             user.getId(),
             user.getUsername(),
             user.getEmail(),
             user.getProfilePic(),
-            presenceService.isUserOnline(user.getId()) ? "online" : user.getStatus()
+            online ? "online" : user.getStatus()
         );
     }
 }
@@ -12,9 +12,10 @@ CREATE TABLE IF NOT EXISTS users (
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
--- Create chat_rooms table
+-- Create chat_rooms table. Ids of chat_rooms, participants and messages are time-ordered ids
+-- assigned by chat-service before insert, not database sequences.
 CREATE TABLE IF NOT EXISTS chat_rooms (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     name VARCHAR(255),
     type VARCHAR(20) NOT NULL CHECK (type IN ('private', 'group')),
     created_by BIGINT NOT NULL,
@@ -23,20 +24,60 @@ CREATE TABLE IF NOT EXISTS chat_rooms (
 
 -- Create participants table
 CREATE TABLE IF NOT EXISTS participants (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
     chat_room_id BIGINT NOT NULL REFERENCES chat_rooms(id) ON DELETE CASCADE,
     UNIQUE(user_id, chat_room_id)
 );
 
--- Create messages table
+-- Create messages table, range-partitioned by month on timestamp (the partition key has to be
+-- part of the primary key). chat-service creates upcoming partitions and moves cold ones to
+-- archive segment files.
 CREATE TABLE IF NOT EXISTS messages (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGINT NOT NULL,
     chat_room_id BIGINT NOT NULL REFERENCES chat_rooms(id) ON DELETE CASCADE,
     sender_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
     content TEXT NOT NULL,
     timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    status VARCHAR(20) DEFAULT 'sent' CHECK (status IN ('sent', 'delivered', 'read'))
+    status VARCHAR(20) DEFAULT 'sent' CHECK (status IN ('sent', 'delivered', 'read')),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Catches rows outside the monthly partitions; expected to stay empty
+CREATE TABLE IF NOT EXISTS messages_default PARTITION OF messages DEFAULT;
+
+-- Create monthly partitions messages_YYYY_MM for the current and the next two months
+DO $$
+DECLARE
+    month_start TIMESTAMP;
+BEGIN
+    FOR i IN 0..2 LOOP
+        month_start := date_trunc('month', CURRENT_TIMESTAMP) + make_interval(months => i);
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF messages FOR VALUES FROM (%L) TO (%L)',
+                'messages_' || to_char(month_start, 'YYYY_MM'), month_start, month_start + INTERVAL '1 month');
+    END LOOP;
+END $$;
+
+-- Create read_receipts table: per-user delivery/read watermarks for each room
+CREATE TABLE IF NOT EXISTS read_receipts (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    chat_room_id BIGINT NOT NULL REFERENCES chat_rooms(id) ON DELETE CASCADE,
+    delivered_message_id BIGINT NOT NULL DEFAULT 0,
+    read_message_id BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, chat_room_id)
+);
+
+-- Create room_summary table: sidebar projection maintained by chat-service on every message
+CREATE TABLE IF NOT EXISTS room_summary (
+    chat_room_id BIGINT PRIMARY KEY REFERENCES chat_rooms(id) ON DELETE CASCADE,
+    name VARCHAR(255),
+    type VARCHAR(20) NOT NULL,
+    participant_count INTEGER NOT NULL DEFAULT 0,
+    last_message_id BIGINT,
+    last_sender_id BIGINT,
+    last_message_preview VARCHAR(200),
+    last_activity_at TIMESTAMP NOT NULL
 );
 
 -- Create blocked_users table
@@ -49,11 +90,13 @@ CREATE TABLE IF NOT EXISTS blocked_users (
 );
 
 -- Create indexes for performance
-CREATE INDEX IF NOT EXISTS idx_messages_chat_room_id ON messages(chat_room_id);
+CREATE INDEX IF NOT EXISTS idx_messages_chat_room_id_id ON messages(chat_room_id, id);
 CREATE INDEX IF NOT EXISTS idx_messages_sender_id ON messages(sender_id);
 CREATE INDEX IF NOT EXISTS idx_messages_timestamp ON messages(timestamp);
 CREATE INDEX IF NOT EXISTS idx_participants_user_id ON participants(user_id);
 CREATE INDEX IF NOT EXISTS idx_participants_chat_room_id ON participants(chat_room_id);
+CREATE INDEX IF NOT EXISTS idx_read_receipts_chat_room_id ON read_receipts(chat_room_id);
+CREATE INDEX IF NOT EXISTS idx_room_summary_last_activity ON room_summary(last_activity_at DESC, chat_room_id DESC);
 CREATE INDEX IF NOT EXISTS idx_chat_rooms_created_by ON chat_rooms(created_by);
 
 -- Insert sample data for testing
@@ -1,46 +1,71 @@
 import { useEffect } from 'react';
 import { useSelector, useDispatch } from 'react-redux';
 import { RootState } from '../../store';
-import { setRooms, setCurrentRoom, setMessages, addMessage } from '../../store/chatSlice';
+import { setRooms, setCurrentRoom, setMessages, addMessage, setParticipantIds, mergeReceipts, setUnreadCounts } from '../../store/chatSlice';
 import { chatService } from '../../services/chatService';
 import { wsService } from '../../services/websocketService';
 import ChatRoomList from './ChatRoomList';
 import ChatWindow from './ChatWindow';
-import { Message } from '../../types';
+import { ChatRoom, Message } from '../../types';
 
 export default function ChatContainer() {
   const dispatch = useDispatch();
   const { currentRoom } = useSelector((state: RootState) => state.chat);
-  const { user } = useSelector((state: RootState) => state.auth);
+  const { user, token } = useSelector((state: RootState) => state.auth);
 
   useEffect(() => {
     loadRooms();
-    
-    // Connect to WebSocket
-    wsService.connect(() => {
+    if (!user || !token) return;
+
+    // Connect to WebSocket; the session keeps the user online
+    wsService.connect(token, () => {
       console.log('Connected to WebSocket');
     });
 
     return () => {
       wsService.disconnect();
     };
-  }, []);
+  }, [user?.id, token]);
 
   useEffect(() => {
     if (currentRoom) {
       loadMessages(currentRoom.id);
+      loadReceipts(currentRoom.id);
       
       // Subscribe to room messages
       wsService.subscribeToRoom(currentRoom.id, (message: Message) => {
         dispatch(addMessage(message));
+        // The room is open, so an incoming message is read as soon as it arrives
+        if (user && message.senderId !== user.id) {
+          wsService.sendReceipt(currentRoom.id, user.id, message.id, 'read');
+        }
+      });
+
+      wsService.subscribeToReceipts(currentRoom.id, (update) => {
+        dispatch(mergeReceipts(update.receipts));
       });
     }
   }, [currentRoom]);
 
   const loadRooms = async () => {
     try {
-      const rooms = await chatService.getUserRooms();
+      // One request returns rooms by last activity with previews and unread counts
+      const page = await chatService.getRoomSummaries({ limit: 50 });
+      const rooms: ChatRoom[] = page.rooms.map((summary) => ({
+        id: summary.chatRoomId,
+        name: summary.name,
+        type: summary.type,
+        createdBy: 0,
+        createdAt: summary.lastActivityAt,
+        lastMessagePreview: summary.lastMessagePreview ?? undefined,
+        lastActivityAt: summary.lastActivityAt,
+      }));
+      const unreadCounts: Record<number, number> = {};
+      page.rooms.forEach((summary) => {
+        if (summary.unreadCount > 0) unreadCounts[summary.chatRoomId] = summary.unreadCount;
+      });
       dispatch(setRooms(rooms));
+      dispatch(setUnreadCounts(unreadCounts));
     } catch (error) {
       console.error('Failed to load rooms', error);
     }
@@ -50,11 +75,27 @@ export default function ChatContainer() {
     try {
       const messages = await chatService.getRoomMessages(roomId);
       dispatch(setMessages(messages));
+      if (user && messages.length > 0) {
+        wsService.sendReceipt(roomId, user.id, messages[messages.length - 1].id, 'read');
+      }
     } catch (error) {
       console.error('Failed to load messages', error);
     }
   };
 
+  const loadReceipts = async (roomId: number) => {
+    try {
+      const [participantIds, receipts] = await Promise.all([
+        chatService.getRoomParticipantIds(roomId),
+        chatService.getRoomReceipts(roomId),
+      ]);
+      dispatch(setParticipantIds(participantIds));
+      dispatch(mergeReceipts(receipts));
+    } catch (error) {
+      console.error('Failed to load receipts', error);
+    }
+  };
+
   return (
     <div className="flex h-screen bg-gray-100">
       <ChatRoomList onRoomSelect={(room) => dispatch(setCurrentRoom(room))} />
@@ -11,7 +11,7 @@ interface ChatRoomListProps {
 }
 
 export default function ChatRoomList({ onRoomSelect }: ChatRoomListProps) {
-  const { rooms, currentRoom } = useSelector((state: RootState) => state.chat);
+  const { rooms, currentRoom, unreadCounts } = useSelector((state: RootState) => state.chat);
   const { user } = useSelector((state: RootState) => state.auth);
   const dispatch = useDispatch();
   const [showNewChat, setShowNewChat] = useState(false);
@@ -115,10 +115,15 @@ export default function ChatRoomList({ onRoomSelect }: ChatRoomListProps) {
               <div className="w-10 h-10 bg-blue-500 rounded-full flex items-center justify-center text-white font-semibold">
                 <MessageSquare size={20} />
               </div>
-              <div className="flex-1 text-left">
+              <div className="flex-1 min-w-0 text-left">
                 <p className="font-semibold text-sm">{room.name}</p>
-                <p className="text-xs text-gray-500">{room.type}</p>
+                <p className="text-xs text-gray-500 truncate">{room.lastMessagePreview ?? room.type}</p>
               </div>
+              {(unreadCounts[room.id] ?? 0) > 0 && (
+                <span className="min-w-6 h-6 px-2 bg-blue-600 rounded-full flex items-center justify-center text-white text-xs font-semibold">
+                  {unreadCounts[room.id]}
+                </span>
+              )}
             </button>
           ))
         )}
@@ -3,10 +3,11 @@ import { useSelector } from 'react-redux';
 import { RootState } from '../../store';
 import { wsService } from '../../services/websocketService';
 import { Send } from 'lucide-react';
+import { Message } from '../../types';
 
 export default function ChatWindow() {
   const [message, setMessage] = useState('');
-  const { currentRoom, messages, typingUsers } = useSelector((state: RootState) => state.chat);
+  const { currentRoom, messages, typingUsers, participantIds, receipts } = useSelector((state: RootState) => state.chat);
   const { user } = useSelector((state: RootState) => state.auth);
   const messagesEndRef = useRef<HTMLDivElement>(null);
   const typingTimeoutRef = useRef<NodeJS.Timeout>();
@@ -45,6 +46,15 @@ export default function ChatWindow() {
     }
   };
 
+  // A message is delivered/read once every other participant's watermark has reached it
+  const receiptStatus = (msg: Message) => {
+    const others = participantIds.filter((id) => id !== msg.senderId);
+    if (others.length === 0) return msg.status;
+    if (others.every((id) => (receipts[id]?.readUpTo ?? 0) >= msg.id)) return 'read';
+    if (others.every((id) => (receipts[id]?.deliveredUpTo ?? 0) >= msg.id)) return 'delivered';
+    return 'sent';
+  };
+
   const formatTime = (timestamp: string) => {
     const date = new Date(timestamp);
     return date.toLocaleTimeString('en-US', { hour: '2-digit', minute: '2-digit' });
@@ -65,6 +75,7 @@ export default function ChatWindow() {
         ) : (
           messages.map((msg) => {
             const isOwnMessage = msg.senderId === user?.id;
+            const status = isOwnMessage ? receiptStatus(msg) : msg.status;
             return (
               <div
                 key={msg.id}
@@ -88,6 +99,11 @@ export default function ChatWindow() {
                       }`}
                     >
                       {formatTime(msg.timestamp)}
+                      {isOwnMessage && (
+                        <span className="ml-2">
+                          {status === 'read' ? '✓✓ read' : status === 'delivered' ? '✓✓' : '✓'}
+                        </span>
+                      )}
                     </p>
                   </div>
                 </div>
@@ -1,5 +1,5 @@
 import api from './api';
-import { ChatRoom, Message } from '../types';
+import { ChatRoom, Message, MessagePage, Receipt, RoomSummaryPage } from '../types';
 
 export const chatService = {
   createRoom: async (name: string, type: 'private' | 'group', participantIds: number[]): Promise<ChatRoom> => {
@@ -16,11 +16,36 @@ export const chatService = {
     return response.data;
   },
 
+  getRoomSummaries: async (params: { cursor?: string; limit?: number } = {}): Promise<RoomSummaryPage> => {
+    const response = await api.get<RoomSummaryPage>('/api/chat/rooms/summary', { params });
+    return response.data;
+  },
+
+  getUnreadCounts: async (): Promise<Record<number, number>> => {
+    const response = await api.get<Record<number, number>>('/api/chat/rooms/unread');
+    return response.data;
+  },
+
   getRoomMessages: async (roomId: number): Promise<Message[]> => {
-    const response = await api.get<Message[]>(`/api/chat/messages/${roomId}`);
+    const response = await api.get<MessagePage>(`/api/chat/messages/${roomId}`);
+    return response.data.messages;
+  },
+
+  getMessagePage: async (roomId: number, params: { before?: number; after?: number; limit?: number }): Promise<MessagePage> => {
+    const response = await api.get<MessagePage>(`/api/chat/messages/${roomId}`, { params });
+    return response.data;
+  },
+
+  getRoomReceipts: async (roomId: number): Promise<Receipt[]> => {
+    const response = await api.get<Receipt[]>(`/api/chat/rooms/${roomId}/receipts`);
     return response.data;
   },
 
+  getRoomParticipantIds: async (roomId: number): Promise<number[]> => {
+    const response = await api.get<{ userId: number }[]>(`/api/chat/rooms/${roomId}/participants`);
+    return response.data.map((participant) => participant.userId);
+  },
+
   searchUsers: async (query: string) => {
     const response = await api.get(`/api/users/search?q=${query}`);
     return response.data;
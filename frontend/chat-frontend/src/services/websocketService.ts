@@ -1,6 +1,6 @@
 import { Client } from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
-import { Message } from '../types';
+import { Message, ReceiptUpdate } from '../types';
 
 const WS_URL = import.meta.env.VITE_WS_URL || 'http://localhost:8080/ws';
 
@@ -9,9 +9,11 @@ class WebSocketService {
   private messageCallback: ((message: Message) => void) | null = null;
   private typingCallback: ((data: any) => void) | null = null;
 
-  connect(onConnected?: () => void) {
+  connect(token: string, onConnected?: () => void) {
     this.client = new Client({
       webSocketFactory: () => new SockJS(WS_URL),
+      // The server takes the session's user from this token, not from message payloads
+      connectHeaders: { Authorization: `Bearer ${token}` },
       reconnectDelay: 5000,
       heartbeatIncoming: 4000,
       heartbeatOutgoing: 4000,
@@ -59,6 +61,14 @@ class WebSocketService {
     });
   }
 
+  subscribeToReceipts(roomId: number, onReceipts: (update: ReceiptUpdate) => void) {
+    if (!this.client) return;
+
+    this.client.subscribe(`/topic/receipts/${roomId}`, (message) => {
+      onReceipts(JSON.parse(message.body));
+    });
+  }
+
   sendMessage(message: Omit<Message, 'id' | 'timestamp' | 'status'>) {
     if (!this.client) return;
 
@@ -77,6 +87,16 @@ class WebSocketService {
     });
   }
 
+  sendReceipt(roomId: number, userId: number, messageId: number, status: 'delivered' | 'read') {
+    if (!this.client) return;
+
+    // Acknowledges every message in the room up to and including messageId
+    this.client.publish({
+      destination: `/app/receipts/${roomId}`,
+      body: JSON.stringify({ userId, messageId, status }),
+    });
+  }
+
   isConnected(): boolean {
     return this.client?.connected || false;
   }
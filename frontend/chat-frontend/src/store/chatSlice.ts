@@ -1,5 +1,5 @@
 import { createSlice, PayloadAction } from '@reduxjs/toolkit';
-import { ChatState, ChatRoom, Message, User } from '../types';
+import { ChatState, ChatRoom, Message, Receipt, User } from '../types';
 
 const initialState: ChatState = {
   rooms: [],
@@ -7,6 +7,9 @@ const initialState: ChatState = {
   messages: [],
   onlineUsers: [],
   typingUsers: [],
+  participantIds: [],
+  receipts: {},
+  unreadCounts: {},
 };
 
 const chatSlice = createSlice({
@@ -22,6 +25,11 @@ const chatSlice = createSlice({
     setCurrentRoom: (state, action: PayloadAction<ChatRoom | null>) => {
       state.currentRoom = action.payload;
       state.messages = [];
+      state.participantIds = [];
+      state.receipts = {};
+      if (action.payload) {
+        delete state.unreadCounts[action.payload.id];
+      }
     },
     setMessages: (state, action: PayloadAction<Message[]>) => {
       state.messages = action.payload;
@@ -40,6 +48,23 @@ const chatSlice = createSlice({
     removeTypingUser: (state, action: PayloadAction<number>) => {
       state.typingUsers = state.typingUsers.filter(id => id !== action.payload);
     },
+    setUnreadCounts: (state, action: PayloadAction<Record<number, number>>) => {
+      state.unreadCounts = action.payload;
+    },
+    setParticipantIds: (state, action: PayloadAction<number[]>) => {
+      state.participantIds = action.payload;
+    },
+    mergeReceipts: (state, action: PayloadAction<Receipt[]>) => {
+      // Watermarks only move forward; updates may arrive out of order
+      for (const receipt of action.payload) {
+        const current = state.receipts[receipt.userId];
+        state.receipts[receipt.userId] = {
+          userId: receipt.userId,
+          deliveredUpTo: Math.max(current?.deliveredUpTo ?? 0, receipt.deliveredUpTo),
+          readUpTo: Math.max(current?.readUpTo ?? 0, receipt.readUpTo),
+        };
+      }
+    },
   },
 });
 
@@ -52,6 +77,9 @@ export const {
   setOnlineUsers,
   addTypingUser,
   removeTypingUser,
+  setUnreadCounts,
+  setParticipantIds,
+  mergeReceipts,
 } = chatSlice.actions;
 
 export default chatSlice.reducer;
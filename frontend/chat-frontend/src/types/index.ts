@@ -20,6 +20,26 @@ export interface ChatRoom {
   type: 'private' | 'group';
   createdBy: number;
   createdAt: string;
+  lastMessagePreview?: string;
+  lastActivityAt?: string;
+}
+
+export interface RoomSummary {
+  chatRoomId: number;
+  name: string;
+  type: 'private' | 'group';
+  participantCount: number;
+  lastMessageId: number | null;
+  lastSenderId: number | null;
+  lastMessagePreview: string | null;
+  lastActivityAt: string;
+  unreadCount: number;
+}
+
+export interface RoomSummaryPage {
+  rooms: RoomSummary[];
+  nextCursor: string | null;
+  hasMore: boolean;
 }
 
 export interface Message {
@@ -33,12 +53,32 @@ export interface Message {
   type?: 'CHAT' | 'JOIN' | 'LEAVE' | 'TYPING';
 }
 
+export interface MessagePage {
+  messages: Message[];
+  nextCursor: number | null;
+  hasMore: boolean;
+}
+
+export interface Receipt {
+  userId: number;
+  deliveredUpTo: number;
+  readUpTo: number;
+}
+
+export interface ReceiptUpdate {
+  chatRoomId: number;
+  receipts: Receipt[];
+}
+
 export interface ChatState {
   rooms: ChatRoom[];
   currentRoom: ChatRoom | null;
   messages: Message[];
   onlineUsers: User[];
   typingUsers: number[];
+  participantIds: number[];
+  receipts: Record<number, Receipt>;
+  unreadCounts: Record<number, number>;
 }
 
 export interface AuthState {